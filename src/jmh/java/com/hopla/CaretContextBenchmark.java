@@ -0,0 +1,65 @@
+package com.hopla;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.JTextArea;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Completer#getCaretContext} on HTTP requests from 10KB to 10MB, with
+ * the caret in the headers and at the end of the body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CaretContextBenchmark {
+
+    @Param({"10240", "1048576", "10485760"})
+    public int documentSize;
+
+    private JTextArea source;
+    private int headerCaret;
+    private int endCaret;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder request = new StringBuilder()
+                .append("POST /api/v1/items?id=1 HTTP/1.1\n")
+                .append("Host: example.com\n")
+                .append("User-Agent: Mozilla/5.0\n")
+                .append("Content-Type: application/json\n");
+        headerCaret = request.length() - 5;
+        request.append("Cookie: session=abc\n\n");
+
+        String line = "{\"id\": 1, \"name\": \"item\", \"tags\": [\"a\", \"b\"], \"value\": \"lorem ipsum dolor\"},\n";
+        while (request.length() < documentSize) {
+            request.append(line);
+        }
+        source = new JTextArea(request.toString());
+        endCaret = source.getDocument().getLength();
+    }
+
+    @Benchmark
+    public Completer.CaretContext caretInHeaders() {
+        return Completer.getCaretContext(source, headerCaret);
+    }
+
+    @Benchmark
+    public Completer.CaretContext caretAtEnd() {
+        return Completer.getCaretContext(source, endCaret);
+    }
+}
@@ -0,0 +1,65 @@
+package com.hopla;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Markdown to HTML rendering of an AI chat answer, code blocks included, as
+ * re-rendered by {@link AIChatPanel} while the answer streams in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MarkdownRenderingBenchmark {
+
+    private static final String SECTION = """
+            ## Finding
+
+            The `id` parameter is **reflected** without encoding, see https://example.com/items?id=1.
+
+            | Parameter | Context | Payload |
+            |-----------|---------|---------|
+            | id        | HTML    | `<img src=x onerror=alert(1)>` |
+            | name      | JS      | ~~`';alert(1)//`~~ |
+
+            ```http
+            GET /items?id=%3Cimg%20src%3Dx%20onerror%3Dalert(1)%3E HTTP/1.1
+            Host: example.com
+            ```
+
+            ```
+            <img src=x onerror=alert(1)>
+            ```
+
+            """;
+
+    @Param({"1", "20", "200"})
+    public int sections;
+
+    private String markdown;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        markdown = SECTION.repeat(sections);
+    }
+
+    @Benchmark
+    public String render() {
+        return AIChatPanel.renderMarkdownToHtml(markdown);
+    }
+}
@@ -0,0 +1,158 @@
+package com.hopla;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link PayloadManager#getSuggestions} runs for one keystroke, on
+ * synthetic corpora. The first payloads go to the payload tree, the rest to a
+ * wordlist store as large lists are loaded in practice. {@link #legacyQuery}
+ * is the stream filter suggestions were computed with before the indexes, on
+ * the same values, as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestionBenchmark {
+
+    private static final int TREE_PAYLOADS = 10_000;
+    private static final int LEGACY_LIMIT = 25;
+    private static final String[] PREFIXES = {
+            "<script>alert(", "<img src=x onerror=", "' or 1=1-- ", "{{7*", "../../etc/", "${jndi:ldap://",
+            "javascript:", "\"><svg onload=", "admin", "X-Forwarded-For: ", "Content-Type: ", "union select "
+    };
+    private static final String[] INPUTS = {"<scr", "<img src=x on", "' or", "uni", "xss.pol", "Conten", "adnim", "zzzz"};
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private SuggestionSnapshot snapshot;
+    private UsageTracker usage;
+    private SuggestionCache cache;
+    private SuggestionCursor cursor;
+    // the lists the legacy filter went through: custom keywords, payloads, keywords
+    private List<Set<String>> legacyLists;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        PayloadDefinition definition = new PayloadDefinition();
+        definition.categories = new ArrayList<>();
+        CompactPayloadStore.Builder wordlist = new CompactPayloadStore.Builder();
+        int wordlistCategory = wordlist.addCategory("Synthetic");
+
+        for (int i = 0; i < size; i++) {
+            String value = PREFIXES[random.nextInt(PREFIXES.length)] + Integer.toString(i, 36) + ")";
+            if (i < TREE_PAYLOADS) {
+                if (i % 100 == 0) {
+                    PayloadDefinition.Category category = new PayloadDefinition.Category();
+                    category.name = i == 0 ? "XSS" : "Category " + i / 100;
+                    category.payloads = new ArrayList<>();
+                    definition.categories.add(category);
+                }
+                PayloadDefinition.Payload payload = new PayloadDefinition.Payload();
+                payload.name = i % 100 == 0 ? "Polyglot" : "Payload " + i;
+                payload.value = value;
+                definition.categories.get(definition.categories.size() - 1).payloads.add(payload);
+            } else {
+                wordlist.add(value, wordlistCategory);
+            }
+        }
+
+        Map<String, String> customKeywords = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            customKeywords.put("custom" + i, "custom-value-" + i);
+        }
+        CompactPayloadStore store = wordlist.build();
+        snapshot = SuggestionSnapshot.build(definition, customKeywords, List.of(store));
+
+        Set<String> payloads = new HashSet<>(definition.flattenPayloadValues());
+        List<String> wordlistValues = new ArrayList<>();
+        store.collect(0, store.size(), wordlistValues, store.size());
+        payloads.addAll(wordlistValues);
+        legacyLists = List.of(new HashSet<>(customKeywords.keySet()), payloads, new HashSet<>(definition.flattenKeywordsValues()));
+
+        usage = new UsageTracker();
+        for (int i = 0; i < 200; i++) {
+            usage.record(PREFIXES[i % PREFIXES.length] + Integer.toString(i, 36) + ")");
+        }
+        cache = new SuggestionCache(PayloadManager.CACHE_SIZE);
+        cursor = new SuggestionCursor();
+    }
+
+    private String nextInput() {
+        next = (next + 1) % INPUTS.length;
+        return INPUTS[next];
+    }
+
+    @Benchmark
+    public List<Suggestion> query() {
+        return snapshot.query(nextInput(), PayloadManager.MAX_SUGGESTIONS, usage);
+    }
+
+    @Benchmark
+    public List<Suggestion> cachedQuery() {
+        return PayloadManager.getSuggestions(cache, snapshot, Completer.HttpSection.UNKNOWN, nextInput(), cursor, usage);
+    }
+
+    @Benchmark
+    public List<String> legacyQuery() {
+        String input = nextInput();
+        List<String> suggestions = new ArrayList<>();
+        for (Set<String> values : legacyLists) {
+            suggestions.addAll(legacyFilter(input, values));
+            if (suggestions.size() >= LEGACY_LIMIT) {
+                return suggestions.subList(0, LEGACY_LIMIT);
+            }
+        }
+        return suggestions;
+    }
+
+    private static List<String> legacyFilter(String input, Set<String> values) {
+        return values.stream()
+                .filter(word -> word.startsWith(input))
+                .map(word -> new AbstractMap.SimpleEntry<>(word, commonPrefixLength(input, word)))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public List<Suggestion> infix() {
+        return snapshot.queryInfix("onerror", PayloadManager.MAX_SUGGESTIONS);
+    }
+}
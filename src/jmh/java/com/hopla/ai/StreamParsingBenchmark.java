@@ -0,0 +1,56 @@
+package com.hopla.ai;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of one streamed line per provider, as done for every token of an
+ * AI chat answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamParsingBenchmark {
+
+    private static final String OLLAMA_CHAT = "{\"model\":\"llama3\",\"created_at\":\"2025-01-01T00:00:00.000Z\","
+            + "\"message\":{\"role\":\"assistant\",\"content\":\" onerror\"},\"done\":false}";
+    private static final String OLLAMA_GENERATE = "{\"model\":\"llama3\",\"created_at\":\"2025-01-01T00:00:00.000Z\","
+            + "\"response\":\" onerror\",\"done\":false}";
+    private static final String OPENAI = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"created\":1735689600,"
+            + "\"model\":\"gpt-4o\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\" onerror\"},\"finish_reason\":null}]}";
+    private static final String GEMINI = "data: {\"candidates\": [{\"content\": {\"parts\": [{\"text\": \" onerror\"}],"
+            + "\"role\": \"model\"},\"index\": 0}],\"modelVersion\": \"gemini-2.0-flash\"}";
+
+    @Benchmark
+    public void ollamaChat(Blackhole blackhole) {
+        blackhole.consume(OllamaProvider.parseStreamLine(OLLAMA_CHAT, true));
+    }
+
+    @Benchmark
+    public void ollamaGenerate(Blackhole blackhole) {
+        blackhole.consume(OllamaProvider.parseStreamLine(OLLAMA_GENERATE, false));
+    }
+
+    @Benchmark
+    public void openAI(Blackhole blackhole) {
+        blackhole.consume(OpenAIProvider.parseStreamLine(OPENAI));
+    }
+
+    @Benchmark
+    public void gemini(Blackhole blackhole) {
+        blackhole.consume(GeminiProvider.parseStreamLine(GEMINI));
+    }
+}
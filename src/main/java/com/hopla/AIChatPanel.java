@@ -95,8 +95,13 @@ public class AIChatPanel {
     private final AIChats chats;
     private final HTMLEditorKit kit = new HTMLEditorKit();
     private final StyleSheet styleSheet = new StyleSheet();
-    private Parser parser;
-    private HtmlRenderer renderer;
+    private static final java.util.List<Extension> MARKDOWN_EXTENSIONS = java.util.Arrays.asList(
+            TablesExtension.create(),
+            AutolinkExtension.create(),
+            StrikethroughExtension.create()
+    );
+    private static final Parser parser = Parser.builder().extensions(MARKDOWN_EXTENSIONS).build();
+    private static final HtmlRenderer renderer = HtmlRenderer.builder().escapeHtml(true).sanitizeUrls(true).extensions(MARKDOWN_EXTENSIONS).build();
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
     private JTextArea inputField;
     private JFrame frame;
@@ -121,13 +126,6 @@ public class AIChatPanel {
         String css = ThemeUtils.getCss(HopLa.montoyaApi);
         styleSheet.addRule(css);
         kit.setStyleSheet(styleSheet);
-        java.util.List<Extension> exts = java.util.Arrays.asList(
-                TablesExtension.create(),
-                AutolinkExtension.create(),
-                StrikethroughExtension.create()
-        );
-        parser = Parser.builder().extensions(exts).build();
-        renderer = HtmlRenderer.builder().escapeHtml(true).sanitizeUrls(true).extensions(exts).build();
     }
 
     public void show(MessageEditorHttpRequestResponse messageEditor, InputEvent event, String input) {
@@ -696,7 +694,7 @@ public class AIChatPanel {
         return t;
     }
 
-    private String renderMarkdownToHtml(String markdown) {
+    static String renderMarkdownToHtml(String markdown) {
         Node document = parser.parse(markdown);
         String body = renderer.render(document);
         if (DEBUG_AI) {
@@ -705,7 +703,7 @@ public class AIChatPanel {
         return enhanceCodeBlocks(body);
     }
 
-    private String enhanceCodeBlocks(String html) {
+    private static String enhanceCodeBlocks(String html) {
         String patternWithLang = "<pre><code\\s+class=\\\"language-([a-zA-Z0-9_\\-]+)\\\">([\\s\\S]*?)</code></pre>";
         String patternNoLang = "<pre><code>([\\s\\S]*?)</code></pre>";
 
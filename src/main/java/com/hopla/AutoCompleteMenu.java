@@ -1,57 +1,64 @@
 package com.hopla;
 
-import java.awt.BorderLayout;
 import java.awt.Dimension;
-import java.awt.GraphicsEnvironment;
-import java.awt.Point;
+import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
 
 import javax.swing.JList;
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
-import javax.swing.JWindow;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.JTextComponent;
 
 import static com.hopla.Constants.DEBUG;
 import static com.hopla.Utils.alert;
-import static com.hopla.Utils.generateJWindow;
 import com.hopla.ai.AIConfiguration;
+import com.hopla.ai.AIProvider;
 
 import burp.api.montoya.MontoyaApi;
 
 public class AutoCompleteMenu {
 
-    public static final String CUSTOM_KEYWORD_SEPARATOR = " [CUSTOM]-> ";
-    public static final String AI_KEYWORD_SEPARATOR = " [AI] ";
+    // input starting with it searches payloads containing the rest, e.g. *onerror
+    public static final String INFIX_SEARCH_TRIGGER = "*";
     private static final int MAX_VISIBLE_ROWS = 10;
     private static final int MIN_VISIBLE_ROWS = 2;
     private static final int FRAME_TOP_MARGIN = 20;
     private static final int FRAME_WIDTH = 400;
     private static final int FRAME_HEIGHT = 50;
     private static final int SCROLL_STEP = 50;
-    private final JWindow frame;
-    private final JList<String> suggestionList;
+    private final SuggestionPopup popup;
+    private final JList<Suggestion> suggestionList;
+    private final SuggestionListModel suggestionModel = new SuggestionListModel();
     private final MontoyaApi api;
     private final PayloadManager payloadManager;
     private final HopLa hopla;
     private final JScrollBar hBar;
     private final AIConfiguration aiConfiguration;
-    DebouncedSwingWorker<List<String>, Void> debouncer = new DebouncedSwingWorker<>();
+    private final Map<JTextComponent, SuggestionCursor> cursors = new WeakHashMap<>();
+    private final SuggestionPipeline pipeline = new SuggestionPipeline();
+    private final DebouncedSwingWorker<AICompletion> debouncer = new DebouncedSwingWorker<>(AICompletion::abort);
     private JTextComponent source;
     private int caretStart = 0;
     private int caretPos = 0;
+    // when the last suggestion was requested, to log the keystroke to paint delay
+    private long requestedNanos = 0;
 
     public AutoCompleteMenu(HopLa hopla, MontoyaApi api, PayloadManager payloadManager, AIConfiguration aiConfiguration) {
         this.api = api;
@@ -59,9 +66,16 @@ public class AutoCompleteMenu {
         this.payloadManager = payloadManager;
         this.aiConfiguration = aiConfiguration;
 
-        frame = generateJWindow();
-
-        suggestionList = new JList<>();
+        suggestionList = new JList<>(suggestionModel) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                if (DEBUG && requestedNanos != 0) {
+                    api.logging().logToOutput("Suggestions painted in " + (System.nanoTime() - requestedNanos) / 1000 + "us");
+                    requestedNanos = 0;
+                }
+            }
+        };
         suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         suggestionList.setLayoutOrientation(JList.VERTICAL);
         suggestionList.setFocusable(false);
@@ -70,6 +84,9 @@ public class AutoCompleteMenu {
         suggestionList.setForeground(ThemeUtils.getForegroundColor(api));
         suggestionList.setSelectionBackground(ThemeUtils.getSelectionBackgroundColor(api));
         suggestionList.setSelectionForeground(ThemeUtils.getSelectionForegroundColor(api));
+        suggestionList.setCellRenderer(new SuggestionRenderer(api));
+        // cells are sized from one prototype instead of measuring every row
+        suggestionList.setPrototypeCellValue(Suggestion.of("<script>alert(1)</script>", Suggestion.Source.PAYLOAD, "XSS"));
         suggestionList.addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
                 // Double click
@@ -81,31 +98,50 @@ public class AutoCompleteMenu {
         JScrollPane scrollPane = new JScrollPane(suggestionList, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
         scrollPane.setPreferredSize(new Dimension(FRAME_WIDTH, FRAME_HEIGHT));
         scrollPane.getViewport().setBackground(ThemeUtils.getBackgroundColor(api));
-        frame.getContentPane().setBackground(ThemeUtils.getBackgroundColor(api));
         hBar = scrollPane.getHorizontalScrollBar();
-        frame.getContentPane().add(scrollPane, BorderLayout.CENTER);
+        popup = new SuggestionPopup(scrollPane, ThemeUtils.getBackgroundColor(api), Boolean.TRUE.equals(hopla.lightweightPopup));
     }
 
-    public void suggest(JTextComponent source, String input, int caretStart, int caretPos, Completer.CaretContext caretContext) {
+    /**
+     * @param keystrokeNanos {@link System#nanoTime()} of the keystroke this completes
+     */
+    public void suggest(JTextComponent source, String input, int caretStart, int caretPos, Completer.CaretContext caretContext, long keystrokeNanos) {
+        this.requestedNanos = keystrokeNanos;
         this.source = source;
         this.caretStart = caretStart;
         this.caretPos = caretPos;
 
-        List<String> suggestions = this.payloadManager.getSuggestions(input);
+        // the cursor is only used by the pipeline thread from now on
+        SuggestionCursor cursor = cursors.computeIfAbsent(source, k -> new SuggestionCursor());
+        pipeline.submit(
+                () -> input.startsWith(INFIX_SEARCH_TRIGGER)
+                        ? this.payloadManager.searchInfix(input.substring(INFIX_SEARCH_TRIGGER.length()), caretContext.section)
+                        : this.payloadManager.getSuggestions(input, caretContext.section, cursor),
+                suggestions -> showSuggestions(suggestions, input, caretContext)
+        );
+    }
 
+    private void showSuggestions(List<Suggestion> suggestions, String input, Completer.CaretContext caretContext) {
         if (Constants.EXTERNAL_AI && hopla.aiAutocompletionEnabled && aiConfiguration.isAIConfigured && input.length() > aiConfiguration.getAutocompletionMinChars()) {
-            debouncer.trigger(()
-                    -> new AICompletion(suggestionList, suggestions, input, caretContext)
+            // same editor, caret, text length and word: the prompt is the same
+            String key = System.identityHashCode(source) + ":" + caretPos + ":" + source.getDocument().getLength() + ":" + input;
+            debouncer.trigger(key,
+                    () -> new AICompletion(suggestionList, suggestions, input, caretContext),
+                    aiConfiguration.getAutocompletionQuietMillis(),
+                    aiConfiguration.getAutocompletionMinIntervalMillis()
             );
+            if (DEBUG) {
+                api.logging().logToOutput("AI completion calls: " + debouncer);
+            }
         }
 
         if (suggestions.isEmpty()) {
-            hide();
+            // only the popup, the AI completion just triggered may still fill it
+            popup.hide();
             return;
         }
 
-        suggestionList.setListData(suggestions.toArray(new String[0]));
-        suggestionList.setSelectedIndex(0);
+        setListData(suggestions);
 
         show(suggestions.size());
         hBar.setValue(0);
@@ -116,32 +152,32 @@ public class AutoCompleteMenu {
 
     }
 
+    private void setListData(List<Suggestion> suggestions) {
+        Suggestion previous = suggestionModel.widest();
+        suggestionModel.setSuggestions(suggestions);
+        Suggestion widest = suggestionModel.widest();
+        if (widest != null && !widest.equals(previous)) {
+            suggestionList.setPrototypeCellValue(widest);
+        }
+        suggestionList.setSelectedIndex(0);
+        suggestionList.ensureIndexIsVisible(0);
+    }
+
     private void show(int lines) {
-        int rowHeight = suggestionList.getCellBounds(0, 0).height;
+        int rowHeight = suggestionList.getFixedCellHeight();
         int heightList = ((Math.min(lines, MAX_VISIBLE_ROWS) + 1) * rowHeight) + 25;
         if (heightList < 50) {
             heightList = 50;
         }
 
-        Point np = new Point();
+        Rectangle caret;
         try {
-            np.x = source.modelToView2D(source.getCaretPosition()).getBounds().x + source.getLocationOnScreen().x;
-            np.y = source.modelToView2D(source.getCaretPosition()).getBounds().y + source.getLocationOnScreen().y + FRAME_TOP_MARGIN;
-            frame.setLocation(np);
+            caret = source.modelToView2D(source.getCaretPosition()).getBounds();
         } catch (BadLocationException e) {
             HopLa.montoyaApi.logging().logToError("Suggest suggestion error: " + e.getMessage());
             return;
         }
-
-        Rectangle screenBounds = GraphicsEnvironment
-                .getLocalGraphicsEnvironment()
-                .getMaximumWindowBounds();
-
-        int height = Math.min(heightList, screenBounds.height - np.y) - FRAME_TOP_MARGIN;
-        frame.setPreferredSize(new Dimension(FRAME_WIDTH, height));
-
-        frame.pack();
-        frame.setVisible(true);
+        popup.show(source, caret, FRAME_WIDTH, heightList, FRAME_TOP_MARGIN, rowHeight);
     }
 
     public void handleKey(int keyCode) {
@@ -177,74 +213,185 @@ public class AutoCompleteMenu {
     }
 
     private void insertSelectedSuggestion() {
-        String val = suggestionList.getSelectedValue();
-        if (val.contains(CUSTOM_KEYWORD_SEPARATOR)) {
-            val = val.split(Pattern.quote(CUSTOM_KEYWORD_SEPARATOR))[1];
-        }
-        if (val.contains(AI_KEYWORD_SEPARATOR)) {
-            val = val.split(Pattern.quote(AI_KEYWORD_SEPARATOR))[1];
-        }
-
-        if (val == null || source == null) {
+        Suggestion selected = suggestionList.getSelectedValue();
+        if (selected == null || source == null) {
             return;
         }
+        String val = selected.value();
         try {
             Document doc = source.getDocument();
             doc.remove(caretStart, caretPos - caretStart);
             doc.insertString(caretStart, val, null);
             source.setCaretPosition(caretStart + val.length());
+            if (selected.source() != Suggestion.Source.AI) {
+                payloadManager.recordUsage(val);
+            }
         } catch (Exception ex) {
             api.logging().logToError("Insert suggestion error: " + ex.getMessage());
         }
-        debouncer.cancel();
         hide();
     }
 
     public void dispose() {
-        if (frame != null) {
-            frame.dispose();
+        debouncer.cancel();
+        if (DEBUG) {
+            api.logging().logToOutput("AI completion calls: " + debouncer);
         }
+        pipeline.shutdown();
+        popup.dispose();
     }
 
     public void hide() {
-        frame.setVisible(false);
+        pipeline.cancel();
+        debouncer.cancel();
+        popup.hide();
     }
 
     public boolean isVisible() {
-        return frame.isVisible();
+        return popup.isVisible();
     }
 
-    public static class DebouncedSwingWorker<T, V> {
+    /**
+     * Starts at most one worker per quiet period. A trigger only schedules the
+     * worker, it starts once no other trigger came for the quiet period and at
+     * least the minimum interval after the previous start. A worker for the key
+     * already running is not started again, a worker for another key is
+     * aborted at once. Only used from the EDT.
+     */
+    public static class DebouncedSwingWorker<W extends SwingWorker<?, ?>> {
+
+        private final Consumer<W> abort;
+        private final LongSupplier nanoTime;
+        private final Timer timer;
+        private Supplier<W> pendingSupplier;
+        private String pendingKey;
+        private W currentWorker;
+        private String currentKey;
+        private int minIntervalMillis;
+        private long lastFiredNanos;
+        private long fired;
+        private long suppressed;
+        private long cancelled;
+
+        /**
+         * @param abort stops a running worker, including its pending I/O
+         */
+        public DebouncedSwingWorker(Consumer<W> abort) {
+            this(abort, System::nanoTime);
+        }
 
-        private Supplier<SwingWorker<T, V>> workerSupplier;
-        private SwingWorker<T, V> currentWorker;
+        DebouncedSwingWorker(Consumer<W> abort, LongSupplier nanoTime) {
+            this.abort = abort;
+            this.nanoTime = nanoTime;
+            this.timer = new Timer(0, e -> fire());
+            this.timer.setRepeats(false);
+        }
 
-        public DebouncedSwingWorker() {
+        public void trigger(String key, Supplier<W> workerSupplier, int quietMillis, int minIntervalMillis) {
+            if (pendingSupplier != null) {
+                suppressed++;
+            }
+            if (isRunning() && !key.equals(currentKey)) {
+                abortCurrent();
+            }
+            this.pendingSupplier = workerSupplier;
+            this.pendingKey = key;
+            this.minIntervalMillis = minIntervalMillis;
+            timer.setInitialDelay(quietMillis);
+            timer.restart();
         }
 
         public void cancel() {
-            if (currentWorker != null && !currentWorker.isDone()) {
-                currentWorker.cancel(true);
+            timer.stop();
+            if (pendingSupplier != null) {
+                suppressed++;
+                pendingSupplier = null;
+                pendingKey = null;
+            }
+            if (isRunning()) {
+                abortCurrent();
             }
         }
 
-        public void trigger(Supplier<SwingWorker<T, V>> workerSupplier) {
-            cancel();
+        /**
+         * Run by the timer once it expires.
+         */
+        void fire() {
+            if (pendingSupplier == null) {
+                return;
+            }
+            long waitMillis = (lastFiredNanos + minIntervalMillis * 1_000_000L - nanoTime.getAsLong()) / 1_000_000L;
+            if (fired > 0 && waitMillis > 0) {
+                timer.setInitialDelay((int) waitMillis);
+                timer.restart();
+                return;
+            }
+
+            Supplier<W> supplier = pendingSupplier;
+            String key = pendingKey;
+            pendingSupplier = null;
+            pendingKey = null;
+            if (isRunning()) {
+                if (key.equals(currentKey)) {
+                    // the same prompt is already in flight, its result is used
+                    suppressed++;
+                    return;
+                }
+                abortCurrent();
+            }
 
-            currentWorker = workerSupplier.get();
+            currentWorker = supplier.get();
+            currentKey = key;
+            lastFiredNanos = nanoTime.getAsLong();
+            fired++;
             currentWorker.execute();
         }
 
+        /**
+         * Milliseconds the timer waits before firing, -1 when nothing is scheduled.
+         */
+        int scheduledDelay() {
+            return timer.isRunning() ? timer.getInitialDelay() : -1;
+        }
+
+        private boolean isRunning() {
+            return currentWorker != null && !currentWorker.isDone();
+        }
+
+        private void abortCurrent() {
+            abort.accept(currentWorker);
+            cancelled++;
+            currentWorker = null;
+            currentKey = null;
+        }
+
+        public long fired() {
+            return fired;
+        }
+
+        public long suppressed() {
+            return suppressed;
+        }
+
+        public long cancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public String toString() {
+            return "fired " + fired + ", suppressed " + suppressed + ", cancelled " + cancelled;
+        }
     }
 
     class AICompletion extends SwingWorker<List<String>, Void> {
 
-        private final JList<String> suggestionList;
-        private final List<String> suggestions;
+        private final JList<Suggestion> suggestionList;
+        private final List<Suggestion> suggestions;
         private final Completer.CaretContext caretContext;
         private final String input;
+        private volatile AIProvider provider;
 
-        public AICompletion(JList<String> suggestionList, List<String> suggestions, String input, Completer.CaretContext caretContext) {
+        public AICompletion(JList<Suggestion> suggestionList, List<Suggestion> suggestions, String input, Completer.CaretContext caretContext) {
             this.suggestionList = suggestionList;
             this.suggestions = suggestions;
             this.caretContext = caretContext;
@@ -254,23 +401,40 @@ public class AutoCompleteMenu {
         @Override
         protected List<String> doInBackground() throws Exception {
             try {
-                return HopLa.aiConfiguration.getCompletionProvider().autoCompletion(this.caretContext);
+                provider = HopLa.aiConfiguration.getCompletionProvider();
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                return provider.autoCompletion(this.caretContext);
             } catch (Exception e) {
                 api.logging().logToError("AI Completion cancelled, input: " + input);
                 throw e;
             }
         }
 
+        /**
+         * Cancels the worker and the HTTP call it is waiting on.
+         */
+        void abort() {
+            cancel(true);
+            AIProvider current = provider;
+            if (current != null) {
+                current.cancelCurrentCompletionRequest();
+            }
+        }
+
         @Override
         protected void done() {
             try {
-                suggestions.addAll(0, get().stream().map(s -> AI_KEYWORD_SEPARATOR + input + s).toList());
-                suggestionList.setListData(suggestions.toArray(new String[0]));
-                if (!suggestions.isEmpty()) {
+                // a new list, the model still shows the previous one
+                List<Suggestion> merged = new ArrayList<>(get().stream().map(s -> Suggestion.of(input + s, Suggestion.Source.AI, null)).toList());
+                merged.addAll(suggestions);
+                if (!merged.isEmpty()) {
+                    setListData(merged);
                     if (DEBUG) {
-                        api.logging().logToOutput("AI suggestion: " + suggestions);
+                        api.logging().logToOutput("AI suggestion: " + merged);
                     }
-                    show(suggestions.size());
+                    show(merged.size());
                 }
 
             } catch (InterruptedException | ExecutionException e) {
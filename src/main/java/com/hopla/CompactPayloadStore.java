@@ -0,0 +1,372 @@
+package com.hopla;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only store for very large wordlists, kept as one byte buffer instead of
+ * a String per entry. Values are sorted by their UTF-8 bytes and front coded in
+ * blocks of 16: each value only stores the suffix it does not share with the
+ * previous one, followed by the id of the wordlist it comes from. Prefix
+ * lookups binary-search the entries and decode them into a scratch buffer, a
+ * String is only created for the values returned.
+ * <p>
+ * Layout: header, category names, block offsets, blocks. The buffer does not
+ * care whether it lives on the heap or is memory mapped. The header records
+ * the encoded length and the block table is checked when wrapping, so a
+ * truncated or corrupt file is rejected up front instead of on a lookup.
+ */
+public final class CompactPayloadStore implements PrefixIndex {
+
+    public static final CompactPayloadStore EMPTY = new Builder().build();
+
+    private static final int MAGIC = 0x484C5753;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int BLOCK_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final int maxValueLength;
+    private final int blockOffsetsStart;
+    private final String[] categories;
+
+    private CompactPayloadStore(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int size = buffer.limit();
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Invalid payload store format");
+        }
+        if (buffer.getInt(8) != size) {
+            throw new IllegalArgumentException("Truncated payload store: " + size + " of " + buffer.getInt(8) + " bytes");
+        }
+        this.entryCount = buffer.getInt(12);
+        this.maxValueLength = buffer.getInt(16);
+        int categoryCount = buffer.getInt(20);
+        if (entryCount < 0 || maxValueLength < 0 || categoryCount < 0) {
+            throw new IllegalArgumentException("Corrupt payload store header");
+        }
+        this.categories = new String[categoryCount];
+
+        int position = HEADER_SIZE;
+        for (int i = 0; i < categories.length; i++) {
+            int length = position <= size - 4 ? buffer.getInt(position) : -1;
+            if (length < 0 || length > size - position - 4) {
+                throw new IllegalArgumentException("Corrupt payload store category names");
+            }
+            byte[] name = new byte[length];
+            buffer.get(position + 4, name);
+            categories[i] = new String(name, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+        this.blockOffsetsStart = position;
+
+        // block heads must be increasing and inside the buffer
+        long blocks = (entryCount + (long) BLOCK_SIZE - 1) / BLOCK_SIZE;
+        long previous = position + blocks * 4 - 1;
+        if (previous >= size && blocks > 0) {
+            throw new IllegalArgumentException("Corrupt payload store block table");
+        }
+        for (int block = 0; block < blocks; block++) {
+            int offset = buffer.getInt(position + block * 4);
+            if (offset <= previous || offset >= size) {
+                throw new IllegalArgumentException("Corrupt payload store block table");
+            }
+            previous = offset;
+        }
+    }
+
+    public static CompactPayloadStore wrap(ByteBuffer buffer) {
+        return new CompactPayloadStore(buffer);
+    }
+
+    /**
+     * Read only view over the encoded store, e.g. to persist it.
+     */
+    public ByteBuffer buffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public String[] categories() {
+        return categories.clone();
+    }
+
+    @Override
+    public int size() {
+        return entryCount;
+    }
+
+    public String category(int ordinal) {
+        Decoder decoder = new Decoder();
+        decoder.seek(ordinal);
+        return categories[decoder.category];
+    }
+
+    @Override
+    public int lowerBound(String prefix, int from, int to) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        Decoder decoder = new Decoder();
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            decoder.seek(mid);
+            if (decoder.compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int upperBound(String prefix, int from, int to) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        Decoder decoder = new Decoder();
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            decoder.seek(mid);
+            if (decoder.startsWith(key) || decoder.compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int collect(int from, int to, List<String> out, int limit) {
+        int end = Math.min(to, from + Math.max(limit, 0));
+        if (from >= end) {
+            return 0;
+        }
+        Decoder decoder = new Decoder();
+        decoder.seek(from);
+        for (int i = from; i < end; i++) {
+            if (i > from) {
+                decoder.next();
+            }
+            out.add(new String(decoder.value, 0, decoder.length, StandardCharsets.UTF_8));
+        }
+        return end - from;
+    }
+
+    private final class Decoder {
+        private final byte[] value = new byte[maxValueLength];
+        private int length;
+        private int category;
+        private int position;
+        private int ordinal = -1;
+
+        void seek(int target) {
+            // only walk forward inside the current block, otherwise restart at the block head
+            if (target < ordinal || target / BLOCK_SIZE != Math.max(ordinal, 0) / BLOCK_SIZE || ordinal < 0) {
+                position = buffer.getInt(blockOffsetsStart + (target / BLOCK_SIZE) * 4);
+                ordinal = (target / BLOCK_SIZE) * BLOCK_SIZE - 1;
+            }
+            while (ordinal < target) {
+                next();
+            }
+        }
+
+        void next() {
+            int shared = readVarint();
+            int suffix = readVarint();
+            buffer.get(position, value, shared, suffix);
+            position += suffix;
+            length = shared + suffix;
+            category = readVarint();
+            ordinal++;
+        }
+
+        int compareTo(byte[] key) {
+            return Arrays.compareUnsigned(value, 0, length, key, 0, key.length);
+        }
+
+        boolean startsWith(byte[] key) {
+            return length >= key.length && Arrays.equals(value, 0, key.length, key, 0, key.length);
+        }
+
+        private int readVarint() {
+            int result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+    }
+
+    /**
+     * Collects values with their wordlist, then sorts, dedups and encodes them.
+     * The first wordlist a duplicated value was added from wins.
+     */
+    public static final class Builder {
+        private final List<String> categories = new ArrayList<>();
+        private final List<Entry> entries = new ArrayList<>();
+
+        public int addCategory(String name) {
+            categories.add(name == null ? "" : name);
+            return categories.size() - 1;
+        }
+
+        public void add(String value, int category) {
+            if (value != null && !value.isEmpty()) {
+                entries.add(new Entry(value.getBytes(StandardCharsets.UTF_8), category));
+            }
+        }
+
+        /**
+         * Adds every non blank line of a plain text file. Lines that are not
+         * valid UTF-8 are skipped one at a time, the rest of the file is kept.
+         * A file that cannot be read to the end adds nothing.
+         *
+         * @return the number of lines skipped
+         */
+        public int addLines(Path file, int category) throws IOException {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            ByteSink line = new ByteSink();
+            byte[] chunk = new byte[64 * 1024];
+            int skipped = 0;
+            int first = entries.size();
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    int start = 0;
+                    for (int i = 0; i < read; i++) {
+                        if (chunk[i] == '\n') {
+                            line.write(chunk, start, i - start);
+                            skipped += addLine(line, category, decoder);
+                            start = i + 1;
+                        }
+                    }
+                    line.write(chunk, start, read - start);
+                }
+            } catch (IOException e) {
+                entries.subList(first, entries.size()).clear();
+                throw e;
+            }
+            return skipped + addLine(line, category, decoder);
+        }
+
+        private int addLine(ByteSink line, int category, CharsetDecoder decoder) {
+            int length = line.size;
+            if (length > 0 && line.bytes[length - 1] == '\r') {
+                length--;
+            }
+            try {
+                String value = decoder.decode(ByteBuffer.wrap(line.bytes, 0, length)).toString();
+                if (!value.isBlank()) {
+                    add(value, category);
+                }
+                return 0;
+            } catch (CharacterCodingException e) {
+                return 1;
+            } finally {
+                line.size = 0;
+            }
+        }
+
+        public CompactPayloadStore build() {
+            entries.sort((a, b) -> Arrays.compareUnsigned(a.value, b.value));
+
+            ByteSink blocks = new ByteSink();
+            List<Integer> blockOffsets = new ArrayList<>();
+            byte[] previous = new byte[0];
+            int count = 0;
+            int maxValueLength = 0;
+            for (Entry entry : entries) {
+                if (count > 0 && Arrays.equals(previous, entry.value)) {
+                    continue;
+                }
+                int shared = 0;
+                if (count % BLOCK_SIZE == 0) {
+                    blockOffsets.add(blocks.size);
+                } else {
+                    shared = Arrays.mismatch(previous, entry.value);
+                    if (shared < 0) {
+                        shared = previous.length;
+                    }
+                }
+                blocks.writeVarint(shared);
+                blocks.writeVarint(entry.value.length - shared);
+                blocks.write(entry.value, shared, entry.value.length - shared);
+                blocks.writeVarint(entry.category);
+                maxValueLength = Math.max(maxValueLength, entry.value.length);
+                previous = entry.value;
+                count++;
+            }
+            entries.clear();
+
+            List<byte[]> names = new ArrayList<>();
+            int namesSize = 0;
+            for (String category : categories) {
+                byte[] name = category.getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                namesSize += 4 + name.length;
+            }
+
+            int blocksStart = HEADER_SIZE + namesSize + blockOffsets.size() * 4;
+            int size = blocksStart + blocks.size;
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(count).putInt(maxValueLength).putInt(names.size());
+            for (byte[] name : names) {
+                buffer.putInt(name.length).put(name);
+            }
+            for (int offset : blockOffsets) {
+                buffer.putInt(blocksStart + offset);
+            }
+            buffer.put(blocks.bytes, 0, blocks.size);
+            buffer.flip();
+            return new CompactPayloadStore(buffer);
+        }
+
+        private record Entry(byte[] value, int category) {
+        }
+    }
+
+    private static final class ByteSink {
+        private byte[] bytes = new byte[4096];
+        private int size;
+
+        void write(byte[] source, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -6,75 +6,55 @@ import javax.swing.*;
 import javax.swing.event.CaretEvent;
 import javax.swing.event.CaretListener;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import java.awt.event.*;
 
 import static com.hopla.Constants.DEBUG;
 
 public class Completer {
+    private static final int FRAME_MILLIS = 16;
+
     private final JTextArea source;
     private final MontoyaApi api;
 
     private final AutoCompleteMenu autoCompleteMenu;
     private KeyListener keyListener;
     private CaretListener caretListener;
-    private int caretPositionStart = 0;
-    private boolean manual_move = false;
+    private boolean typed = false;
+    private boolean moved = false;
     private boolean backspace = false;
-    private boolean escape = false;
-    private int in_selection = 0;
     private FocusListener focusListener;
+    private MouseListener mouseListener;
+    // caret events are merged and handled once per frame, on the final caret state
+    private final Timer caretTimer = new Timer(FRAME_MILLIS, e -> flushCaret());
+    private int pendingCaretEvents = 0;
+    private long firstCaretEventNanos = 0;
+    private long caretEvents = 0;
+    private long caretFlushes = 0;
 
     public Completer(MontoyaApi api, JTextArea source, AutoCompleteMenu autoCompleteMenu) {
         this.source = source;
         this.api = api;
         this.autoCompleteMenu = autoCompleteMenu;
+        this.caretTimer.setRepeats(false);
+        this.caretTimer.setCoalesce(true);
         this.addListenersDetectManualCaretMove();
 
     }
 
     public static CaretContext getCaretContext(JTextArea source, int caretPosition) {
-        String[] lines = source.getText().split("\n");
-
-        int charCount = 0;
-        int caretLineIndex = 0;
-
-        for (int i = 0; i < lines.length; i++) {
-            charCount += lines[i].length() + 1; // +1 for \n
-            if (caretPosition < charCount) {
-                caretLineIndex = i;
-                break;
-            }
-        }
-
-        int bodyStartIndex = -1;
-        for (int i = 1; i < lines.length; i++) {
-            if (lines[i].trim().isEmpty()) {
-                bodyStartIndex = i + 1;
-                break;
-            }
-        }
-
-        HttpSection section;
-        if (caretLineIndex == 0) {
-            section = HttpSection.REQUEST_LINE;
-        } else if (bodyStartIndex == -1) {
-            section = HttpSection.HEADERS;
-        } else if (caretLineIndex < bodyStartIndex) {
-            section = HttpSection.HEADERS;
-        } else {
-            section = HttpSection.BODY;
-        }
-
-        String textBeforeCaret = source.getText().substring(0, caretPosition);
-        String textAfterCaret = source.getText().substring(caretPosition);
-        if (textAfterCaret.isEmpty()) {
-            textAfterCaret = "\n";
-        }
-        int lastNewline = textBeforeCaret.lastIndexOf('\n');
-        String lineUpToCaret = textBeforeCaret.substring(lastNewline + 1);
-
-
-        return new CaretContext(section, lineUpToCaret, textBeforeCaret, textAfterCaret);
+        LineIndex lines = LineIndex.of(source);
+        Document document = lines.document();
+        HttpSection section = lines.sectionOf(caretPosition);
+
+        int lineStart = lines.lineStart(lines.lineOf(caretPosition));
+        int length = document.getLength();
+        CharSequence textAfterCaret = caretPosition < length ? new DocumentText(document, caretPosition, length) : "\n";
+
+        return new CaretContext(section,
+                new DocumentText(document, lineStart, caretPosition),
+                new DocumentText(document, 0, caretPosition),
+                textAfterCaret);
     }
 
     public JTextArea getSource() {
@@ -98,7 +78,7 @@ public class Completer {
                     api.logging().logToOutput("Input: " + e.getKeyChar());
                 }
                 if (isPrintableChar(e.getKeyChar())) {
-                    manual_move = false;
+                    typed = true;
                 }
             }
 
@@ -115,96 +95,29 @@ public class Completer {
                     }
                     autoCompleteMenu.handleKey(keyCode);
                     e.consume();
-                    if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                        if (DEBUG) {
-                            api.logging().logToOutput("Escape key caught");
-                        }
-                        escape = true;
+                    if (DEBUG && e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                        api.logging().logToOutput("Escape key caught");
                     }
+                } else if (isNavigationKey(e.getKeyCode())) {
+                    moved = true;
                 }
             }
         };
+        mouseListener = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                moved = true;
+            }
+        };
         caretListener = new CaretListener() {
             @Override
             public void caretUpdate(CaretEvent e) {
-
-                int pos = e.getDot();
-
-                // selection create 3 events, skip the next 2
-                if (e.getMark() != e.getDot()) {
-                    if (DEBUG) {
-                        api.logging().logToOutput("selection " + e.getMark() + "  " + pos);
-                    }
-
-                    // min depend on selection direction
-                    caretPositionStart = Math.min(e.getMark(), e.getDot());
-                    in_selection = 2;
-                }
-
-                if (in_selection > 0 && backspace) {
-                    in_selection = -1;
-                } else if (in_selection > 0) {
-                    in_selection -= 1;
-                    return;
-                }
-
-                if (DEBUG) {
-                    api.logging().logToOutput("caret manual move: " + manual_move);
-                    api.logging().logToOutput("caret start: " + caretPositionStart + " end: " + pos);
-                }
-
-                if ((manual_move || escape) && !backspace) {
-                    if (DEBUG) {
-                        api.logging().logToOutput("manual move or escape");
-                    }
-
-                    caretPositionStart = pos;
-                    autoCompleteMenu.hide();
-                } else {
-                    if (backspace) {
-                        if (DEBUG) {
-                            api.logging().logToOutput("backspace");
-                        }
-
-                        if (pos <= caretPositionStart) {
-                            caretPositionStart = pos;
-                            autoCompleteMenu.hide();
-                        }
-
-                    }
-
-                    try {
-                        String content = source.getText(0, pos);
-                        String text = content.substring(caretPositionStart);
-                        CaretContext caretContext = getCaretContext(source, pos);
-                        if (DEBUG) {
-                            api.logging().logToOutput("complete: " + text);
-                            api.logging().logToOutput("Caret context: " + caretContext);
-                        }
-                        autoCompleteMenu.suggest(source, text, caretPositionStart, pos, caretContext);
-
-                    } catch (BadLocationException ex) {
-                        if (DEBUG) {
-                            api.logging().logToError("Bad location user completion input" + ex.getMessage());
-                        }
-                    } catch (StringIndexOutOfBoundsException ex) {
-                        if (DEBUG) {
-                            api.logging().logToError("Out of bound error start: " + caretPositionStart + " end: " + source.getCaretPosition());
-                        }
-                    } catch (Exception ex) {
-                        if (DEBUG) {
-                            api.logging().logToError("Completion input error: " + ex.getMessage());
-                        }
-                    }
+                if (pendingCaretEvents++ == 0) {
+                    firstCaretEventNanos = System.nanoTime();
                 }
-                backspace = false;
-                escape = false;
-                manual_move = true;
-
-                if (DEBUG) {
-                    api.logging().logToOutput("-----------------");
+                if (!caretTimer.isRunning()) {
+                    caretTimer.start();
                 }
-
             }
         };
 
@@ -216,6 +129,7 @@ public class Completer {
 
             @Override
             public void focusLost(FocusEvent e) {
+                flushCaret();
                 autoCompleteMenu.hide();
             }
         };
@@ -223,12 +137,87 @@ public class Completer {
         source.addCaretListener(caretListener);
         source.addKeyListener(keyListener);
         source.addFocusListener(focusListener);
+        source.addMouseListener(mouseListener);
+    }
+
+    private static boolean isNavigationKey(int keyCode) {
+        return switch (keyCode) {
+            case KeyEvent.VK_LEFT, KeyEvent.VK_RIGHT, KeyEvent.VK_UP, KeyEvent.VK_DOWN,
+                 KeyEvent.VK_HOME, KeyEvent.VK_END, KeyEvent.VK_PAGE_UP, KeyEvent.VK_PAGE_DOWN -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Handles the caret events received since the last frame at once. Only
+     * typing shows suggestions, for the word ending at the caret, any other
+     * caret move or a selection hides them.
+     */
+    private void flushCaret() {
+        caretTimer.stop();
+        if (pendingCaretEvents == 0) {
+            return;
+        }
+        int merged = pendingCaretEvents;
+        pendingCaretEvents = 0;
+        caretEvents += merged;
+        caretFlushes++;
+        if (DEBUG) {
+            api.logging().logToOutput("Caret flush merged " + merged + " events (" + caretEvents + " events in " + caretFlushes + " flushes)");
+        }
+
+        int pos = source.getCaretPosition();
+        int mark = source.getCaret().getMark();
+        boolean typing = (typed || backspace) && !moved;
+        typed = false;
+        moved = false;
+        backspace = false;
+
+        if (mark != pos || !typing) {
+            if (DEBUG) {
+                api.logging().logToOutput("manual move or selection " + mark + "  " + pos);
+            }
+            autoCompleteMenu.hide();
+            return;
+        }
+
+        try {
+            int anchor = CompletionAnchor.find(source.getDocument(), pos);
+            if (anchor == pos) {
+                autoCompleteMenu.hide();
+                return;
+            }
+            String text = source.getText(anchor, pos - anchor);
+            CaretContext caretContext = getCaretContext(source, pos);
+            if (DEBUG) {
+                api.logging().logToOutput("complete: " + text);
+                api.logging().logToOutput("Caret context: " + caretContext);
+            }
+            autoCompleteMenu.suggest(source, text, anchor, pos, caretContext, firstCaretEventNanos);
+
+        } catch (BadLocationException ex) {
+            if (DEBUG) {
+                api.logging().logToError("Bad location user completion input" + ex.getMessage());
+            }
+        } catch (Exception ex) {
+            if (DEBUG) {
+                api.logging().logToError("Completion input error: " + ex.getMessage());
+            }
+        }
+
+        if (DEBUG) {
+            api.logging().logToOutput("-----------------");
+        }
     }
 
     public void detach() {
         source.removeKeyListener(keyListener);
         source.removeCaretListener(caretListener);
         source.removeFocusListener(focusListener);
+        source.removeMouseListener(mouseListener);
+        caretTimer.stop();
+        pendingCaretEvents = 0;
+        LineIndex.detach(source);
     }
 
     public enum HttpSection {
@@ -238,13 +227,17 @@ public class Completer {
         UNKNOWN
     }
 
+    /**
+     * Where the caret is. The texts are views over the document, copied only
+     * when read.
+     */
     public static class CaretContext {
         public final HttpSection section;
-        public final String lineUpToCaret;
-        public final String textBeforeCaret;
-        public final String textAfterCaret;
+        public final CharSequence lineUpToCaret;
+        public final CharSequence textBeforeCaret;
+        public final CharSequence textAfterCaret;
 
-        public CaretContext(HttpSection section, String lineUpToCaret, String textBeforeCaret, String textAfterCaret) {
+        public CaretContext(HttpSection section, CharSequence lineUpToCaret, CharSequence textBeforeCaret, CharSequence textAfterCaret) {
             this.section = section;
             this.lineUpToCaret = lineUpToCaret;
             this.textBeforeCaret = textBeforeCaret;
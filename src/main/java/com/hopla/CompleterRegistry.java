@@ -0,0 +1,83 @@
+package com.hopla;
+
+import burp.api.montoya.MontoyaApi;
+
+import javax.swing.JTextArea;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Completers attached to message editors. The registry only holds the editors
+ * weakly and each completer is stored on its own editor, so a closed Repeater
+ * tab can be collected with its completer. A completer is also detached as soon
+ * as its editor leaves the component hierarchy, it is attached again if the
+ * editor comes back and is used.
+ */
+public final class CompleterRegistry {
+
+    private static final String CLIENT_PROPERTY = "hopla.completer";
+
+    private final MontoyaApi api;
+    private final Set<JTextArea> sources = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final HierarchyListener hierarchyListener = this::hierarchyChanged;
+
+    public CompleterRegistry(MontoyaApi api) {
+        this.api = api;
+    }
+
+    public boolean isAttached(JTextArea source) {
+        return source.getClientProperty(CLIENT_PROPERTY) instanceof Completer;
+    }
+
+    public void attach(JTextArea source, AutoCompleteMenu autoCompleteMenu) {
+        if (isAttached(source)) {
+            return;
+        }
+        source.putClientProperty(CLIENT_PROPERTY, new Completer(api, source, autoCompleteMenu));
+        source.addHierarchyListener(hierarchyListener);
+        sources.add(source);
+        if (Constants.DEBUG) {
+            api.logging().logToOutput("Add completer: " + source.getName() + ", live completers: " + size());
+        }
+    }
+
+    public void detach(JTextArea source) {
+        if (source.getClientProperty(CLIENT_PROPERTY) instanceof Completer completer) {
+            completer.detach();
+        }
+        source.putClientProperty(CLIENT_PROPERTY, null);
+        source.removeHierarchyListener(hierarchyListener);
+        sources.remove(source);
+    }
+
+    public void detachAll() {
+        List<JTextArea> attached;
+        synchronized (sources) {
+            attached = new ArrayList<>(sources);
+        }
+        attached.forEach(this::detach);
+    }
+
+    /**
+     * Completers still attached, editors already collected are not counted.
+     */
+    public int size() {
+        return sources.size();
+    }
+
+    private void hierarchyChanged(HierarchyEvent e) {
+        if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0
+                && e.getComponent() instanceof JTextArea source
+                && !source.isDisplayable()) {
+            detach(source);
+            if (Constants.DEBUG) {
+                api.logging().logToOutput("Remove completer: " + source.getName() + ", live completers: " + size());
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.hopla;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+/**
+ * Finds where the word being completed starts, reading back from the caret to
+ * the nearest HTTP delimiter: whitespace, {@code &}, {@code =}, {@code ;} or a
+ * quote. It depends on the text only, so merged or dropped caret events cannot
+ * make it wrong, and it never reads more than {@link #MAX_WORD_LENGTH}
+ * characters and the delimiter before them.
+ */
+public final class CompletionAnchor {
+
+    public static final int MAX_WORD_LENGTH = 256;
+
+    private CompletionAnchor() {
+    }
+
+    /**
+     * Start of the word ending at {@code caret}, {@code caret} itself when
+     * there is no word or it is longer than {@link #MAX_WORD_LENGTH}.
+     */
+    public static int find(Document document, int caret) throws BadLocationException {
+        int start = Math.max(0, caret - MAX_WORD_LENGTH - 1);
+        Segment segment = new Segment();
+        document.getText(start, caret - start, segment);
+        return start + find(segment, segment.length(), start == 0);
+    }
+
+    /**
+     * @param atTextStart whether {@code text} starts at the beginning of the
+     *                    document, a word running up to it is then complete
+     */
+    static int find(CharSequence text, int caret, boolean atTextStart) {
+        for (int i = caret - 1; i >= 0; i--) {
+            if (isDelimiter(text.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return atTextStart ? 0 : caret;
+    }
+
+    public static boolean isDelimiter(char c) {
+        return switch (c) {
+            case '&', '=', ';', '"', '\'' -> true;
+            default -> Character.isWhitespace(c);
+        };
+    }
+}
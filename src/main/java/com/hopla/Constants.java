@@ -12,6 +12,7 @@ public final class Constants {
     public static final String PREFERENCE_LOCAL_DICT = "HOPLA_LOCAL_DICT";
     public static final String PREFERENCE_AI_CONFIGURATION = "HOPLA_AI_CONFIGURATION";
     public static final String PREFERENCE_AI_CHATS = "HOPLA_AI_CHATS";
+    public static final String PREFERENCE_USAGE = "HOPLA_USAGE";
     public static final String DEFAULT_PAYLOAD_RESOURCE_PATH = "/default-payloads.enc.yaml";
     public static final String DEFAULT_AI_CONFIGURATION_PATH = "/ai-configuration-sample.yaml";
     public static final String DEFAULT_BAPP_AI_CONFIGURATION_PATH = "/ai-bapp-configuration-sample.yaml";
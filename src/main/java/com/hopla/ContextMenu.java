@@ -34,12 +34,14 @@ public class ContextMenu implements ContextMenuItemsProvider {
 
         for (Component c : payloadManager.getPayloads().buildMenu((payload) -> {
             Utils.insertPayload(messageEditor, payload.value, event.inputEvent());
+            payloadManager.recordUsage(payload.value);
         })) {
             items.add(c);
         }
 
         JMenu customKeywordsMenu = HopLa.localPayloadsManager.buildMenu((payload) -> {
             Utils.insertPayload(messageEditor, payload, event.inputEvent());
+            payloadManager.recordUsage(payload);
         });
         items.add(customKeywordsMenu);
 
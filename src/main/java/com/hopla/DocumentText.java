@@ -0,0 +1,76 @@
+package com.hopla;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Read-only view of a range of an editor document. Nothing is copied until the
+ * text is actually read, then it is copied once under the document read lock,
+ * so the view can be handed to a background thread. The range is clamped to
+ * the document as it is when read, edits made meanwhile are visible.
+ */
+public final class DocumentText implements CharSequence {
+
+    private final Document document;
+    private final int start;
+    private final int end;
+    private volatile String text;
+
+    public DocumentText(Document document, int start, int end) {
+        this.document = document;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    /**
+     * A view of the sub-range, still not copied.
+     */
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of length " + length());
+        }
+        if (text != null) {
+            return text.substring(from, to);
+        }
+        return new DocumentText(document, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        String copy = text;
+        if (copy == null) {
+            String[] read = new String[1];
+            Runnable reader = () -> read[0] = read();
+            if (document instanceof AbstractDocument abstractDocument) {
+                abstractDocument.render(reader);
+            } else {
+                reader.run();
+            }
+            copy = read[0];
+            text = copy;
+        }
+        return copy;
+    }
+
+    private String read() {
+        int length = document.getLength();
+        int from = Math.min(start, length);
+        try {
+            return document.getText(from, Math.min(end, length) - from);
+        } catch (BadLocationException e) {
+            return "";
+        }
+    }
+}
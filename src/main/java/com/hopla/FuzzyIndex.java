@@ -0,0 +1,290 @@
+package com.hopla;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * fzf-style subsequence matching over payloads. Each payload is matched
+ * through a haystack made of its category path, name and value, so "xsspoly"
+ * finds the XSS Polyglot and "onerr" finds any value containing "onerror".
+ * Matches are scored with consecutive-run and word-boundary bonuses, and only
+ * the best ones are kept in a bounded min-heap, no full sort is needed.
+ */
+public final class FuzzyIndex {
+
+    public static final FuzzyIndex EMPTY = new FuzzyIndex(new String[0], new String[0]);
+
+    // Keep the ids of every match so a longer input only rescans those
+    private static final int MAX_NARROWED_MATCHES = 4096;
+
+    private static final int SCORE_MATCH = 16;
+    private static final int PENALTY_GAP_START = 3;
+    private static final int PENALTY_GAP_EXTENSION = 1;
+    private static final int BONUS_BOUNDARY = 8;
+    private static final int BONUS_CAMEL = 7;
+    private static final int BONUS_CONSECUTIVE = 4;
+    private static final int BONUS_FIRST_CHAR_MULTIPLIER = 2;
+    private static final int NO_MATCH = Integer.MIN_VALUE;
+
+    private static final int CHAR_DELIMITER = 0;
+    private static final int CHAR_LOWER = 1;
+    private static final int CHAR_UPPER = 2;
+    private static final int CHAR_DIGIT = 3;
+
+    private final String[] values;
+    private final String[] haystacks;
+    // characters present in each haystack, rejects most misses without a scan
+    private final long[] charMasks;
+
+    private FuzzyIndex(String[] values, String[] haystacks) {
+        this.values = values;
+        this.haystacks = haystacks;
+        this.charMasks = new long[haystacks.length];
+        for (int i = 0; i < haystacks.length; i++) {
+            charMasks[i] = charMask(haystacks[i]);
+        }
+    }
+
+    public static FuzzyIndex of(PayloadDefinition definition) {
+        // first occurrence wins when the same value is listed twice
+        Map<String, String> entries = new LinkedHashMap<>();
+        definition.visitPayloads((path, payload) -> {
+            String label = (payload.name == null || payload.name.isEmpty()) ? path : path + "/" + payload.name;
+            entries.putIfAbsent(payload.value, label + " " + payload.value);
+        });
+        if (entries.isEmpty()) {
+            return EMPTY;
+        }
+        return new FuzzyIndex(entries.keySet().toArray(new String[0]), entries.values().toArray(new String[0]));
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public int[] collect(String input, int[] candidates, List<String> out, int limit) {
+        return collect(input, candidates, out, limit, value -> true);
+    }
+
+    /**
+     * Appends the best {@code limit} values matching {@code input} to {@code out}, skipping the
+     * ones already present.
+     *
+     * @param candidates ids to scan, or null to scan every entry
+     * @param accept     values suggested at all, e.g. the ones of an HTTP section
+     * @return the ids of every match when there are few enough of them to be worth narrowing
+     * the next query, null otherwise
+     */
+    public int[] collect(String input, int[] candidates, List<String> out, int limit, Predicate<String> accept) {
+        String pattern = input.toLowerCase(Locale.ROOT);
+        long patternMask = charMask(pattern);
+        int count = candidates == null ? values.length : candidates.length;
+
+        long[] heapKeys = new long[Math.max(limit, 0)];
+        int[] heapIds = new int[heapKeys.length];
+        int heapSize = 0;
+        int[] matches = new int[16];
+        int matchCount = 0;
+
+        for (int c = 0; c < count; c++) {
+            int id = candidates == null ? c : candidates[c];
+            if ((charMasks[id] & patternMask) != patternMask || !accept.test(values[id])) {
+                continue;
+            }
+            String haystack = haystacks[id];
+            int score = score(pattern, haystack);
+            if (score == NO_MATCH) {
+                continue;
+            }
+
+            if (matches != null) {
+                if (matchCount == MAX_NARROWED_MATCHES) {
+                    matches = null;
+                } else {
+                    if (matchCount == matches.length) {
+                        matches = Arrays.copyOf(matches, matchCount * 2);
+                    }
+                    matches[matchCount++] = id;
+                }
+            }
+
+            if (heapKeys.length == 0) {
+                continue;
+            }
+            // shorter haystacks win ties
+            long key = ((long) score << 32) | (0xFFFFFFFFL - haystack.length());
+            if (heapSize < heapKeys.length) {
+                heapKeys[heapSize] = key;
+                heapIds[heapSize] = id;
+                siftUp(heapKeys, heapIds, heapSize++);
+            } else if (key > heapKeys[0]) {
+                heapKeys[0] = key;
+                heapIds[0] = id;
+                siftDown(heapKeys, heapIds, heapSize);
+            }
+        }
+
+        // Drain the min-heap from the end so the best match comes first
+        int[] ordered = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ordered[i] = heapIds[0];
+            heapKeys[0] = heapKeys[i];
+            heapIds[0] = heapIds[i];
+            siftDown(heapKeys, heapIds, i);
+        }
+        for (int id : ordered) {
+            if (!out.contains(values[id])) {
+                out.add(values[id]);
+            }
+        }
+
+        return matches == null ? null : Arrays.copyOf(matches, matchCount);
+    }
+
+    /**
+     * Scores {@code text} against the lower case {@code pattern}, or returns {@link #NO_MATCH}
+     * when the pattern is not a subsequence of the text.
+     */
+    static int score(String pattern, String text) {
+        int patternLength = pattern.length();
+        int textLength = text.length();
+        if (patternLength == 0 || patternLength > textLength) {
+            return NO_MATCH;
+        }
+
+        // Forward pass finds where the first complete match ends
+        int p = 0;
+        int end = -1;
+        for (int i = 0; i < textLength; i++) {
+            if (Character.toLowerCase(text.charAt(i)) == pattern.charAt(p) && ++p == patternLength) {
+                end = i + 1;
+                break;
+            }
+        }
+        if (end < 0) {
+            return NO_MATCH;
+        }
+
+        // Backward pass shrinks it to the shortest window ending there
+        p = patternLength - 1;
+        int start = 0;
+        for (int i = end - 1; i >= 0; i--) {
+            if (Character.toLowerCase(text.charAt(i)) == pattern.charAt(p) && --p < 0) {
+                start = i;
+                break;
+            }
+        }
+
+        int score = 0;
+        int consecutive = 0;
+        int firstBonus = 0;
+        boolean inGap = false;
+        int previousClass = start > 0 ? charClass(text.charAt(start - 1)) : CHAR_DELIMITER;
+        p = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            int currentClass = charClass(c);
+            if (Character.toLowerCase(c) == pattern.charAt(p)) {
+                int bonus = bonus(previousClass, currentClass);
+                if (consecutive == 0) {
+                    firstBonus = bonus;
+                } else {
+                    // a run keeps the boundary bonus of its first character
+                    bonus = Math.max(Math.max(bonus, firstBonus), BONUS_CONSECUTIVE);
+                }
+                score += SCORE_MATCH + (p == 0 ? bonus * BONUS_FIRST_CHAR_MULTIPLIER : bonus);
+                consecutive++;
+                inGap = false;
+                p++;
+            } else {
+                score -= inGap ? PENALTY_GAP_EXTENSION : PENALTY_GAP_START;
+                consecutive = 0;
+                inGap = true;
+            }
+            previousClass = currentClass;
+        }
+        return score;
+    }
+
+    private static long charMask(String text) {
+        long mask = 0;
+        for (int i = 0; i < text.length(); i++) {
+            mask |= 1L << (Character.toLowerCase(text.charAt(i)) & 63);
+        }
+        return mask;
+    }
+
+    private static int bonus(int previousClass, int currentClass) {
+        if (currentClass == CHAR_DELIMITER) {
+            return 0;
+        }
+        if (previousClass == CHAR_DELIMITER) {
+            return BONUS_BOUNDARY;
+        }
+        if (previousClass == CHAR_LOWER && currentClass == CHAR_UPPER
+                || previousClass != CHAR_DIGIT && currentClass == CHAR_DIGIT) {
+            return BONUS_CAMEL;
+        }
+        return 0;
+    }
+
+    private static int charClass(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return CHAR_LOWER;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return CHAR_UPPER;
+        }
+        if (c >= '0' && c <= '9') {
+            return CHAR_DIGIT;
+        }
+        if (Character.isLetter(c)) {
+            return Character.isUpperCase(c) ? CHAR_UPPER : CHAR_LOWER;
+        }
+        return CHAR_DELIMITER;
+    }
+
+    private static void siftUp(long[] keys, int[] ids, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= keys[i]) {
+                return;
+            }
+            swap(keys, ids, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] keys, int[] ids, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = i * 2 + 1;
+            int right = left + 1;
+            if (left < size && keys[left] < keys[smallest]) {
+                smallest = left;
+            }
+            if (right < size && keys[right] < keys[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(keys, ids, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(long[] keys, int[] ids, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+}
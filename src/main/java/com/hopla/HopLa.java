@@ -21,7 +21,6 @@ import com.hopla.ai.AIAgent;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.AWTEventListener;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -33,7 +32,7 @@ import static com.hopla.Constants.*;
 import static com.hopla.Utils.alert;
 import static com.hopla.Utils.getSelectedText;
 
-public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEventListener {
+public class HopLa implements BurpExtension, ExtensionUnloadingHandler {
 
     public static MontoyaApi montoyaApi;
     public static LocalPayloadsManager localPayloadsManager;
@@ -44,16 +43,18 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
     public static AIQuickAction aiQuickAction;
     public static AIAgent aiAgent;
     private static String extensionName;
-    private final ArrayList<Completer> listeners = new ArrayList<>();
     private final ArrayList<Registration> registrations = new ArrayList<Registration>();
     private final Set<String> registeredShortcuts = new HashSet<>();
     public Boolean autocompletionEnabled;
     public Boolean shortcutsEnabled;
     public Boolean aiAutocompletionEnabled;
+    public Boolean lightweightPopup;
     private PayloadManager payloadManager;
     private AutoCompleteMenu autoCompleteMenu;
     private PayloadMenu payloadMenu;
     private SettingsPanelWithData settingsPanel;
+    private CompleterRegistry completers;
+    private MessageEditorDiscovery messageEditorDiscovery;
 
     @Override
     public void initialize(MontoyaApi montoyaApi) {
@@ -74,6 +75,9 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
         settings.add(SettingsPanelSetting.stringSetting("Chat Shortcut", "Ctrl+J"));
         settings.add(SettingsPanelSetting.stringSetting("Quick Action Shortcut", "Ctrl+Shift+Q"));
         settings.add(SettingsPanelSetting.integerSetting("Autocompletion Min Chars", 1));
+        settings.add(SettingsPanelSetting.integerSetting("AI Autocompletion Quiet Period (ms)", AIConfiguration.DEFAULT_AUTOCOMPLETION_QUIET_MILLIS));
+        settings.add(SettingsPanelSetting.integerSetting("AI Autocompletion Min Interval (ms)", AIConfiguration.DEFAULT_AUTOCOMPLETION_MIN_INTERVAL_MILLIS));
+        settings.add(SettingsPanelSetting.booleanSetting("Lightweight Autocompletion Popup", false));
 
         settings.add(SettingsPanelSetting.listSetting("Default Chat Provider", providerNames, AIProviderType.OLLAMA.name()));
         settings.add(SettingsPanelSetting.listSetting("Default Completion Provider", providerNames, AIProviderType.OLLAMA.name()));
@@ -91,6 +95,7 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
                 defaultEndpoint = "http://localhost:11434";
             }
             settings.add(SettingsPanelSetting.stringSetting(prefix + "Endpoint", defaultEndpoint));
+            settings.add(SettingsPanelSetting.integerSetting(prefix + "Completion Context Tokens", type.getDefaultContextTokens()));
         }
 
         settingsPanel = SettingsPanelBuilder.settingsPanel()
@@ -113,6 +118,7 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
         aiAutocompletionEnabled = settingsPanel.getBoolean("Enable AI Autocompletion");
         shortcutsEnabled = settingsPanel.getBoolean("Enable Shortcuts");
         autocompletionEnabled = settingsPanel.getBoolean("Enable Autocompletion");
+        lightweightPopup = settingsPanel.getBoolean("Lightweight Autocompletion Popup");
 
         montoyaApi.logging().logToOutput("AI configured: " + aiConfiguration.isAIConfigured);
 
@@ -123,9 +129,11 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
         montoyaApi.logging().logToOutput("Shortcuts enabled: " + shortcutsEnabled);
         montoyaApi.logging().logToOutput("Autocompletion enabled: " + autocompletionEnabled);
 
+        completers = new CompleterRegistry(montoyaApi);
         localPayloadsManager = new LocalPayloadsManager(montoyaApi);
         payloadManager = new PayloadManager(montoyaApi, localPayloadsManager);
         autoCompleteMenu = new AutoCompleteMenu(this, montoyaApi, payloadManager, aiConfiguration);
+        messageEditorDiscovery = new MessageEditorDiscovery(montoyaApi, completers, autoCompleteMenu);
         searchReplaceWindow = new SearchReplaceWindow(montoyaApi);
         payloadMenu = new PayloadMenu(payloadManager, montoyaApi);
         aiChatPanel = new AIChatPanel(aiConfiguration, aiChats);
@@ -155,7 +163,7 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
         montoyaApi.persistence()
                 .preferences().setBoolean(PREFERENCE_AUTOCOMPLETION, true);
         autocompletionEnabled = true;
-        Toolkit.getDefaultToolkit().addAWTEventListener(this, AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK);
+        messageEditorDiscovery.start();
     }
 
     public void disableAutocompletion() {
@@ -187,55 +195,14 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
         registeredShortcuts.clear();
     }
 
-    @Override
-    public void eventDispatched(AWTEvent event) {
-        if (event.getSource() instanceof JTextArea source) {
-            if (source.getClientProperty("hasListener") != null && ((Boolean) source.getClientProperty("hasListener"))) {
-                return;
-            }
-
-            // enable to debug awt frame
-            if (AWT_DEBUG) {
-                Container comp = source;
-                while (comp != null) {
-                    montoyaApi.logging().logToOutput("Ancestor: " + comp.getClass().getName() + " name: " + comp.getName());
-                    comp = comp.getParent();
-                }
-            }
-
-            Container is_editor = SwingUtilities.getAncestorNamed("messageEditor", source);
-
-            if (is_editor == null) {
-                return;
-            }
-            if (AWT_DEBUG) {
-                montoyaApi.logging().logToOutput("Message editor detected: " + source.getName());
-            }
-            if (!source.isEditable()) {
-                return;
-            }
-            if (Constants.DEBUG) {
-                montoyaApi.logging().logToOutput("Message editor is editable: " + source.getName());
-            }
-            if (autocompletionEnabled) {
-                Completer t = new Completer(montoyaApi, source, autoCompleteMenu);
-                source.putClientProperty("hasListener", true);
-                this.listeners.add(t);
-                if (Constants.DEBUG) {
-                    montoyaApi.logging().logToOutput("Add completer: " + source.getName());
-                }
-            }
-        }
-    }
-
     private void removeListeners() {
-        Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+        messageEditorDiscovery.stop();
 
         // Remove all listeners on unload
-        for (Completer listener : this.listeners) {
-            listener.detach();
-            listener.getSource().putClientProperty("hasListener", false);
+        if (Constants.DEBUG) {
+            montoyaApi.logging().logToOutput("Detach completers: " + completers.size());
         }
+        completers.detachAll();
     }
 
     @Override
@@ -244,6 +211,7 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
         autoCompleteMenu.dispose();
         payloadMenu.dispose();
         localPayloadsManager.dispose();
+        payloadManager.dispose();
         searchReplaceWindow.dispose();
         aiChatPanel.dispose();
         aiQuickAction.dispose();
@@ -326,6 +294,7 @@ public class HopLa implements BurpExtension, ExtensionUnloadingHandler, AWTEvent
                     }
                     MessageEditorHttpRequestResponse messageEditor = event.messageEditorRequestResponse().get();
                     Utils.insertPayload(messageEditor, payload.value, event.inputEvent());
+                    payloadManager.recordUsage(payload.value);
                 });
             }
         }
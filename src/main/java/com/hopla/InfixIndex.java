@@ -0,0 +1,314 @@
+package com.hopla;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Case-insensitive substring search over payload values, e.g. {@code onerror}
+ * or {@code /etc/passwd} wherever they appear in a payload.
+ * Values are split into shards of about {@link #SHARD_CHARS} characters, each
+ * with a suffix array over its lower-cased values. A query binary-searches the
+ * suffixes starting with the fragment in every shard, in parallel on the
+ * common ForkJoin pool once the corpus is large enough to pay for it.
+ * Values are numbered shortest first, so lower ids are preferred.
+ */
+public final class InfixIndex {
+
+    public static final InfixIndex EMPTY = new InfixIndex(new String[0], new Shard[0], 0);
+
+    private static final int SHARD_CHARS = 1 << 20;
+    private static final int PARALLEL_CHARS = 1 << 18;
+    private static final char SEPARATOR = '\0';
+    // suffixes are only ordered by their first characters, so long runs of
+    // the same character do not make the build quadratic
+    private static final int SORT_DEPTH = 64;
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    private final String[] values;
+    private final Shard[] shards;
+    private final long totalChars;
+
+    private InfixIndex(String[] values, Shard[] shards, long totalChars) {
+        this.values = values;
+        this.shards = shards;
+        this.totalChars = totalChars;
+    }
+
+    public static InfixIndex of(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        String[] sorted = values.stream()
+                .filter(Objects::nonNull)
+                .filter(value -> !value.isEmpty())
+                .distinct()
+                .sorted(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()))
+                .toArray(String[]::new);
+        if (sorted.length == 0) {
+            return EMPTY;
+        }
+
+        // contiguous id ranges, cut once a shard holds enough characters
+        List<int[]> bounds = new ArrayList<>();
+        long totalChars = 0;
+        int first = 0;
+        int chars = 0;
+        for (int id = 0; id < sorted.length; id++) {
+            chars += sorted[id].length() + 1;
+            totalChars += sorted[id].length();
+            if (chars >= SHARD_CHARS || id == sorted.length - 1) {
+                bounds.add(new int[]{first, id + 1});
+                first = id + 1;
+                chars = 0;
+            }
+        }
+
+        IntStream shardIds = IntStream.range(0, bounds.size());
+        if (bounds.size() > 1) {
+            shardIds = shardIds.parallel();
+        }
+        Shard[] shards = shardIds
+                .mapToObj(i -> new Shard(sorted, bounds.get(i)[0], bounds.get(i)[1]))
+                .toArray(Shard[]::new);
+        return new InfixIndex(sorted, shards, totalChars);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public int collect(String fragment, List<String> out, int limit) {
+        return collect(fragment, out, limit, value -> true);
+    }
+
+    /**
+     * Appends up to {@code limit} values containing {@code fragment}, shortest
+     * first, to {@code out}.
+     *
+     * @param accept values suggested at all, e.g. the ones of an HTTP section
+     * @return the number of values added
+     */
+    public int collect(String fragment, List<String> out, int limit, Predicate<String> accept) {
+        if (fragment.isEmpty() || limit <= 0 || shards.length == 0) {
+            return 0;
+        }
+        char[] pattern = lowerCase(fragment);
+        IntPredicate accepted = id -> accept.test(values[id]);
+
+        IntStream shardIds = IntStream.range(0, shards.length);
+        if (shards.length > 1 && totalChars >= PARALLEL_CHARS) {
+            shardIds = shardIds.parallel();
+        }
+        // shards cover increasing id ranges, so their results concatenate in order
+        int[][] matches = shardIds
+                .mapToObj(i -> shards[i].matches(pattern, limit, accepted))
+                .toArray(int[][]::new);
+
+        int added = 0;
+        for (int[] ids : matches) {
+            for (int i = 0; i < ids.length && added < limit; i++) {
+                out.add(values[ids[i]]);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static char[] lowerCase(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return chars;
+    }
+
+    private static final class Shard {
+        private final int firstId;
+        private final int[] starts;
+        private final char[] text;
+        private final int[] suffixes;
+
+        Shard(String[] values, int from, int to) {
+            this.firstId = from;
+            this.starts = new int[to - from];
+
+            StringBuilder builder = new StringBuilder();
+            for (int id = from; id < to; id++) {
+                starts[id - from] = builder.length();
+                builder.append(values[id]).append(SEPARATOR);
+            }
+            this.text = lowerCase(builder.toString());
+
+            int count = 0;
+            for (char c : text) {
+                if (c != SEPARATOR) {
+                    count++;
+                }
+            }
+            this.suffixes = new int[count];
+            for (int i = 0, n = 0; i < text.length; i++) {
+                if (text[i] != SEPARATOR) {
+                    suffixes[n++] = i;
+                }
+            }
+            sort(0, suffixes.length, 0);
+        }
+
+        /**
+         * Ids of the accepted values containing {@code pattern}, at most
+         * {@code limit}, lowest first.
+         */
+        int[] matches(char[] pattern, int limit, IntPredicate accept) {
+            char[] key = pattern.length > SORT_DEPTH ? Arrays.copyOf(pattern, SORT_DEPTH) : pattern;
+            int low = bound(key, false);
+            int high = bound(key, true);
+            if (low >= high) {
+                return new int[0];
+            }
+
+            BitSet found = new BitSet(starts.length);
+            for (int i = low; i < high; i++) {
+                if (key == pattern || comparePrefix(suffixes[i], pattern) == 0) {
+                    found.set(owner(suffixes[i]));
+                }
+            }
+            return found.stream().map(local -> local + firstId).filter(accept).limit(limit).toArray();
+        }
+
+        /**
+         * First suffix not lower than the pattern, or past the suffixes
+         * starting with it when {@code upper} is set.
+         */
+        private int bound(char[] pattern, boolean upper) {
+            int low = 0;
+            int high = suffixes.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = comparePrefix(suffixes[mid], pattern);
+                if (cmp < 0 || (upper && cmp == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int comparePrefix(int position, char[] pattern) {
+            for (int k = 0; k < pattern.length; k++) {
+                if (position + k >= text.length) {
+                    return -1;
+                }
+                char c = text[position + k];
+                if (c != pattern[k]) {
+                    return c < pattern[k] ? -1 : 1;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Multikey quicksort of suffixes[low, high) whose first {@code depth}
+         * characters are equal, on the primitive array so no suffix is boxed.
+         * Each pass splits on the character at {@code depth}, the equal part
+         * moves on to the next character.
+         */
+        private void sort(int low, int high, int depth) {
+            while (high - low > 1 && depth < SORT_DEPTH) {
+                if (high - low <= INSERTION_SORT_SIZE) {
+                    insertionSort(low, high, depth);
+                    return;
+                }
+                int pivot = medianChar(low, (low + high) >>> 1, high - 1, depth);
+                int lt = low;
+                int gt = high - 1;
+                int i = low;
+                while (i <= gt) {
+                    int c = charAt(suffixes[i], depth);
+                    if (c < pivot) {
+                        swap(lt++, i++);
+                    } else if (c > pivot) {
+                        swap(i, gt--);
+                    } else {
+                        i++;
+                    }
+                }
+                sort(low, lt, depth);
+                sort(gt + 1, high, depth);
+                if (pivot < 0) {
+                    // the equal suffixes all end here
+                    return;
+                }
+                low = lt;
+                high = gt + 1;
+                depth++;
+            }
+        }
+
+        private void insertionSort(int low, int high, int depth) {
+            for (int i = low + 1; i < high; i++) {
+                int suffix = suffixes[i];
+                int j = i;
+                while (j > low && compareSuffixes(suffixes[j - 1], suffix, depth) > 0) {
+                    suffixes[j] = suffixes[j - 1];
+                    j--;
+                }
+                suffixes[j] = suffix;
+            }
+        }
+
+        private int medianChar(int a, int b, int c, int depth) {
+            int x = charAt(suffixes[a], depth);
+            int y = charAt(suffixes[b], depth);
+            int z = charAt(suffixes[c], depth);
+            return Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+        }
+
+        // -1 past the end of the text, so a shorter suffix sorts first
+        private int charAt(int position, int depth) {
+            return position + depth < text.length ? text[position + depth] : -1;
+        }
+
+        private void swap(int i, int j) {
+            int suffix = suffixes[i];
+            suffixes[i] = suffixes[j];
+            suffixes[j] = suffix;
+        }
+
+        private int compareSuffixes(int a, int b, int depth) {
+            for (int k = depth; k < SORT_DEPTH; k++) {
+                int ca = charAt(a, k);
+                int cb = charAt(b, k);
+                if (ca != cb) {
+                    return Integer.compare(ca, cb);
+                }
+                if (ca < 0) {
+                    return 0;
+                }
+            }
+            return 0;
+        }
+
+        private int owner(int position) {
+            int low = 0;
+            int high = starts.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (starts[mid] <= position) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.hopla;
+
+import javax.swing.JTextArea;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+
+/**
+ * Line start offsets of an editor document and the blank line separating the
+ * HTTP headers from the body, kept up to date by a {@link DocumentListener}.
+ * An edit only scans the inserted text and shifts the following offsets, the
+ * line and section of a caret are then found by binary search without copying
+ * the document. Like the document events, it is used on the EDT only.
+ */
+public final class LineIndex implements DocumentListener {
+
+    private static final String CLIENT_PROPERTY = "hopla.lineIndex";
+
+    private final JTextArea source;
+    private final PropertyChangeListener documentChange = e -> rebuild();
+    private final Segment segment = new Segment();
+    private Document document;
+    private int[] starts = new int[64];
+    private int lineCount;
+    // first blank line after the request line, -1 when there is none
+    private int blankLine;
+    // lines from this one on have to be searched for the blank line again
+    private int scanFrom;
+
+    private LineIndex(JTextArea source) {
+        this.source = source;
+        segment.setPartialReturn(true);
+        rebuild();
+        source.addPropertyChangeListener("document", documentChange);
+    }
+
+    /**
+     * Index of {@code source}, created and attached on first use.
+     */
+    public static LineIndex of(JTextArea source) {
+        Object index = source.getClientProperty(CLIENT_PROPERTY);
+        if (index instanceof LineIndex lineIndex) {
+            return lineIndex;
+        }
+        LineIndex lineIndex = new LineIndex(source);
+        source.putClientProperty(CLIENT_PROPERTY, lineIndex);
+        return lineIndex;
+    }
+
+    public static void detach(JTextArea source) {
+        if (source.getClientProperty(CLIENT_PROPERTY) instanceof LineIndex lineIndex) {
+            lineIndex.document.removeDocumentListener(lineIndex);
+            source.removePropertyChangeListener("document", lineIndex.documentChange);
+            source.putClientProperty(CLIENT_PROPERTY, null);
+        }
+    }
+
+    public Document document() {
+        return document;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public int lineStart(int line) {
+        return starts[line];
+    }
+
+    /**
+     * Line holding {@code offset}, a caret right after a newline being on the
+     * next line.
+     */
+    public int lineOf(int offset) {
+        int index = Arrays.binarySearch(starts, 0, lineCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * First blank line after the request line, -1 when the document has no body.
+     */
+    public int blankLine() {
+        if (scanFrom >= 0) {
+            blankLine = -1;
+            for (int line = Math.max(1, scanFrom); line < lineCount; line++) {
+                if (isBlank(line)) {
+                    blankLine = line;
+                    break;
+                }
+            }
+            scanFrom = -1;
+        }
+        return blankLine;
+    }
+
+    public Completer.HttpSection sectionOf(int offset) {
+        int line = lineOf(offset);
+        if (line == 0) {
+            return Completer.HttpSection.REQUEST_LINE;
+        }
+        int blank = blankLine();
+        return blank == -1 || line <= blank ? Completer.HttpSection.HEADERS : Completer.HttpSection.BODY;
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        int offset = e.getOffset();
+        int length = e.getLength();
+        int line = lineOf(offset);
+
+        int[] inserted = new int[8];
+        int count = 0;
+        try {
+            int position = offset;
+            int end = offset + length;
+            while (position < end) {
+                document.getText(position, end - position, segment);
+                for (int i = 0; i < segment.count; i++) {
+                    if (segment.array[segment.offset + i] == '\n') {
+                        if (count == inserted.length) {
+                            inserted = Arrays.copyOf(inserted, count * 2);
+                        }
+                        inserted[count++] = position + i + 1;
+                    }
+                }
+                position += segment.count;
+            }
+        } catch (BadLocationException ex) {
+            rebuild();
+            return;
+        }
+
+        for (int i = line + 1; i < lineCount; i++) {
+            starts[i] += length;
+        }
+        if (count > 0) {
+            ensureCapacity(lineCount + count);
+            System.arraycopy(starts, line + 1, starts, line + 1 + count, lineCount - line - 1);
+            System.arraycopy(inserted, 0, starts, line + 1, count);
+            lineCount += count;
+        }
+        edited(line);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        int offset = e.getOffset();
+        int length = e.getLength();
+        int line = lineOf(offset);
+        // lines starting inside the removed text are merged into the edited line
+        int last = lineOf(offset + length);
+
+        int removed = last - line;
+        if (removed > 0) {
+            System.arraycopy(starts, last + 1, starts, line + 1, lineCount - last - 1);
+            lineCount -= removed;
+        }
+        for (int i = line + 1; i < lineCount; i++) {
+            starts[i] -= length;
+        }
+        edited(line);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // attribute changes do not move text
+    }
+
+    // a blank line before the edited line is unchanged, other edits may move or create it
+    private void edited(int line) {
+        if (scanFrom >= 0) {
+            scanFrom = Math.min(scanFrom, line);
+        } else if (blankLine == -1 || line <= blankLine) {
+            scanFrom = line;
+        }
+    }
+
+    private void rebuild() {
+        if (document != null) {
+            document.removeDocumentListener(this);
+        }
+        document = source.getDocument();
+        document.addDocumentListener(this);
+
+        lineCount = 1;
+        starts[0] = 0;
+        try {
+            int length = document.getLength();
+            int position = 0;
+            while (position < length) {
+                document.getText(position, length - position, segment);
+                for (int i = 0; i < segment.count; i++) {
+                    if (segment.array[segment.offset + i] == '\n') {
+                        ensureCapacity(lineCount + 1);
+                        starts[lineCount++] = position + i + 1;
+                    }
+                }
+                position += segment.count;
+            }
+        } catch (BadLocationException e) {
+            lineCount = 1;
+        }
+        blankLine = -1;
+        scanFrom = 1;
+    }
+
+    // same as String.trim().isEmpty() on the line without its newline
+    private boolean isBlank(int line) {
+        int start = starts[line];
+        int end = line + 1 < lineCount ? starts[line + 1] - 1 : document.getLength();
+        try {
+            int position = start;
+            while (position < end) {
+                document.getText(position, end - position, segment);
+                for (int i = 0; i < segment.count; i++) {
+                    if (segment.array[segment.offset + i] > ' ') {
+                        return false;
+                    }
+                }
+                position += segment.count;
+            }
+        } catch (BadLocationException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(capacity, starts.length * 2));
+        }
+    }
+}
@@ -5,13 +5,12 @@ import org.yaml.snakeyaml.Yaml;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.Consumer;
 
-import static com.hopla.AutoCompleteMenu.CUSTOM_KEYWORD_SEPARATOR;
 import static com.hopla.Constants.PREFERENCE_LOCAL_DICT;
 
 public class LocalPayloadsManager {
@@ -20,6 +19,7 @@ public class LocalPayloadsManager {
     private JFrame frameAdd;
     private JFrame frameManage;
     private HashMap<String, String> localPayloads = new HashMap<>();
+    private final List<Runnable> changeListeners = new ArrayList<>();
     private DefaultListModel<String> listModel;
 
     public LocalPayloadsManager(MontoyaApi api) {
@@ -27,15 +27,15 @@ public class LocalPayloadsManager {
         this.loadLocalPayloads();
     }
 
-    public Set<String> getPayloads() {
-        Set<String> concatenatedSet = new HashSet<>();
+    /**
+     * Custom keyword values by name.
+     */
+    public Map<String, String> getKeywords() {
+        return new HashMap<>(localPayloads);
+    }
 
-        for (Map.Entry<String, String> entry : localPayloads.entrySet()) {
-            String combined = entry.getKey() + CUSTOM_KEYWORD_SEPARATOR + entry.getValue();
-            concatenatedSet.add(combined);
-            concatenatedSet.add(entry.getValue());
-        }
-        return concatenatedSet;
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
     }
 
     private void loadLocalPayloads() {
@@ -49,6 +49,9 @@ public class LocalPayloadsManager {
     public void saveLocalPayload() {
         String output = yaml.dump(localPayloads);
         this.api.persistence().preferences().setString(PREFERENCE_LOCAL_DICT, output);
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
     }
 
     public void add(String input) {
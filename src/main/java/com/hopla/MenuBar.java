@@ -71,6 +71,7 @@ public class MenuBar {
                 api.persistence().preferences().deleteString(PREFERENCE_LOCAL_DICT);
                 api.persistence().preferences().deleteString(PREFERENCE_AI_CONFIGURATION);
                 api.persistence().preferences().deleteString(PREFERENCE_AI_CHATS);
+                payloadManager.clearUsage();
                 success("Preferences cleared. Please reload the extension");
             }
 
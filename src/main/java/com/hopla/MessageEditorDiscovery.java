@@ -0,0 +1,134 @@
+package com.hopla;
+
+import burp.api.montoya.MontoyaApi;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.HierarchyEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import static com.hopla.Constants.AWT_DEBUG;
+
+/**
+ * Attaches completers to editable message editors when they are shown.
+ * Editors already on screen are found by one scan of the windows, the others
+ * when a hierarchy event reports they became showing. Hierarchy events are only
+ * sent when components are added, removed, shown or hidden, so key and mouse
+ * input never goes through here. Editors still read-only when shown are
+ * watched until they become editable, Proxy Intercept and Repeater toggle it
+ * without any hierarchy change.
+ */
+public final class MessageEditorDiscovery implements AWTEventListener {
+
+    private static final String MESSAGE_EDITOR = "messageEditor";
+    private static final String EDITABLE = "editable";
+
+    private final MontoyaApi api;
+    private final CompleterRegistry completers;
+    private final AutoCompleteMenu autoCompleteMenu;
+    private final Set<JTextArea> readOnly = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final PropertyChangeListener editableListener = this::editableChanged;
+
+    public MessageEditorDiscovery(MontoyaApi api, CompleterRegistry completers, AutoCompleteMenu autoCompleteMenu) {
+        this.api = api;
+        this.completers = completers;
+        this.autoCompleteMenu = autoCompleteMenu;
+    }
+
+    public void start() {
+        Toolkit.getDefaultToolkit().addAWTEventListener(this, AWTEvent.HIERARCHY_EVENT_MASK);
+        SwingUtilities.invokeLater(() -> {
+            for (Window window : Window.getWindows()) {
+                scan(window);
+            }
+        });
+    }
+
+    public void stop() {
+        Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+        List<JTextArea> watched;
+        synchronized (readOnly) {
+            watched = new ArrayList<>(readOnly);
+        }
+        watched.forEach(this::unwatch);
+    }
+
+    @Override
+    public void eventDispatched(AWTEvent event) {
+        if (event instanceof HierarchyEvent e
+                && (e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0
+                && e.getComponent() instanceof JTextArea source
+                && source.isShowing()) {
+            discovered(source);
+        }
+    }
+
+    private void scan(Component component) {
+        if (component instanceof JTextArea source) {
+            if (source.isShowing()) {
+                discovered(source);
+            }
+        } else if (component instanceof Container container) {
+            for (Component child : container.getComponents()) {
+                scan(child);
+            }
+        }
+    }
+
+    void discovered(JTextArea source) {
+        if (completers.isAttached(source)) {
+            return;
+        }
+
+        // enable to debug awt frame
+        if (AWT_DEBUG) {
+            Container comp = source;
+            while (comp != null) {
+                api.logging().logToOutput("Ancestor: " + comp.getClass().getName() + " name: " + comp.getName());
+                comp = comp.getParent();
+            }
+        }
+
+        if (SwingUtilities.getAncestorNamed(MESSAGE_EDITOR, source) == null) {
+            return;
+        }
+        if (AWT_DEBUG) {
+            api.logging().logToOutput("Message editor detected: " + source.getName());
+        }
+        if (!source.isEditable()) {
+            if (readOnly.add(source)) {
+                source.addPropertyChangeListener(EDITABLE, editableListener);
+            }
+            return;
+        }
+        unwatch(source);
+        if (Constants.DEBUG) {
+            api.logging().logToOutput("Message editor is editable: " + source.getName());
+        }
+        completers.attach(source, autoCompleteMenu);
+    }
+
+    private void editableChanged(PropertyChangeEvent e) {
+        if (Boolean.TRUE.equals(e.getNewValue()) && e.getSource() instanceof JTextArea source) {
+            discovered(source);
+        }
+    }
+
+    private void unwatch(JTextArea source) {
+        if (readOnly.remove(source)) {
+            source.removePropertyChangeListener(EDITABLE, editableListener);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.hopla;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Payloads keyed by the path of their categories and name, e.g.
+ * {@code xss.pol} for the Polyglot payload of the XSS category.
+ * Segments are compared lower-cased without spaces or punctuation, every
+ * segment must match a category exactly except the last one which is a
+ * prefix. Each segment is a binary search among the children of the
+ * previous one, the payload tree is never walked.
+ */
+public final class PathIndex {
+
+    public static final char SEPARATOR = '.';
+    public static final PathIndex EMPTY = new PathIndex(new Builder().freeze());
+
+    private final Node root;
+
+    private PathIndex(Node root) {
+        this.root = root;
+    }
+
+    public static PathIndex of(PayloadDefinition definition) {
+        Builder root = new Builder();
+        if (definition.categories != null) {
+            for (PayloadDefinition.Category category : definition.categories) {
+                add(root, category);
+            }
+        }
+        return new PathIndex(root.freeze());
+    }
+
+    private static void add(Builder parent, PayloadDefinition.Category category) {
+        Builder node = parent.child(normalize(category.name));
+        if (category.payloads != null) {
+            for (PayloadDefinition.Payload payload : category.payloads) {
+                if (payload == null || payload.value == null) {
+                    continue;
+                }
+                String name = normalize(payload.name);
+                (name.isEmpty() ? node : node.child(name)).values.add(payload.value);
+            }
+        }
+        if (category.categories != null) {
+            for (PayloadDefinition.Category sub : category.categories) {
+                add(node, sub);
+            }
+        }
+    }
+
+    static String normalize(String segment) {
+        if (segment == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(segment.length());
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    public int collect(String input, List<String> out, int limit) {
+        return collect(input, out, limit, value -> true);
+    }
+
+    /**
+     * Appends up to {@code limit} payloads whose path matches {@code input} to
+     * {@code out}, sorted by path. Input without a separator never matches.
+     *
+     * @param accept values suggested at all, e.g. the ones of an HTTP section
+     * @return the number of values added
+     */
+    public int collect(String input, List<String> out, int limit, Predicate<String> accept) {
+        int separator = input.indexOf(SEPARATOR);
+        if (separator <= 0 || limit <= 0) {
+            return 0;
+        }
+
+        Node node = root;
+        int start = 0;
+        while (separator != -1) {
+            node = node.child(normalize(input.substring(start, separator)));
+            if (node == null) {
+                return 0;
+            }
+            start = separator + 1;
+            separator = input.indexOf(SEPARATOR, start);
+        }
+
+        String prefix = normalize(input.substring(start));
+        int added = 0;
+        if (prefix.isEmpty()) {
+            added += node.collect(out, limit, accept);
+        } else {
+            for (int i = node.lowerBound(prefix); i < node.names.length && node.names[i].startsWith(prefix) && added < limit; i++) {
+                added += node.children[i].collect(out, limit - added, accept);
+            }
+        }
+        return added;
+    }
+
+    private static final class Node {
+        private final String[] names;
+        private final Node[] children;
+        private final String[] values;
+
+        Node(String[] names, Node[] children, String[] values) {
+            this.names = names;
+            this.children = children;
+            this.values = values;
+        }
+
+        Node child(String name) {
+            int index = Arrays.binarySearch(names, name);
+            return index < 0 ? null : children[index];
+        }
+
+        int lowerBound(String prefix) {
+            int index = Arrays.binarySearch(names, prefix);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        // own payloads first, then the subcategories and named payloads
+        int collect(List<String> out, int limit, Predicate<String> accept) {
+            int added = 0;
+            for (int i = 0; i < values.length && added < limit; i++) {
+                if (accept.test(values[i])) {
+                    out.add(values[i]);
+                    added++;
+                }
+            }
+            for (int i = 0; i < children.length && added < limit; i++) {
+                added += children[i].collect(out, limit - added, accept);
+            }
+            return added;
+        }
+    }
+
+    private static final class Builder {
+        private final Map<String, Builder> children = new TreeMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        Builder child(String name) {
+            return children.computeIfAbsent(name, k -> new Builder());
+        }
+
+        Node freeze() {
+            String[] names = children.keySet().toArray(new String[0]);
+            Node[] nodes = children.values().stream().map(Builder::freeze).toArray(Node[]::new);
+            return new Node(names, nodes, values.toArray(new String[0]));
+        }
+    }
+}
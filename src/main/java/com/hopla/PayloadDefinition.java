@@ -6,11 +6,13 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class PayloadDefinition {
     public List<Category> categories;
     public List<KeywordCategory> keywords;
+    public List<Wordlist> wordlists;
     public String shortcut_search_and_replace;
     public String shortcut_add_custom_keyword;
     public String shortcut_payload_menu;
@@ -76,12 +78,115 @@ public class PayloadDefinition {
 
     public Set<String> flattenKeywordsValues() {
         Set<String> values = new HashSet<>();
+        if (keywords == null) return values;
+
         for (PayloadDefinition.KeywordCategory category : keywords) {
-            values.addAll(category.values);
+            if (category.values != null) {
+                values.addAll(category.values);
+            }
         }
         return values;
     }
 
+    /**
+     * Visits every payload with the slash separated path of its category,
+     * e.g. {@code LFI/Simple}.
+     */
+    public void visitPayloads(BiConsumer<String, Payload> visitor) {
+        if (categories == null) return;
+
+        for (PayloadDefinition.Category category : categories) {
+            visitPayloads(category, category.name, visitor);
+        }
+    }
+
+    private void visitPayloads(PayloadDefinition.Category category, String path, BiConsumer<String, Payload> visitor) {
+        if (category.payloads != null) {
+            for (PayloadDefinition.Payload payload : category.payloads) {
+                if (payload != null && payload.value != null) {
+                    visitor.accept(path, payload);
+                }
+            }
+        }
+
+        if (category.categories != null) {
+            for (PayloadDefinition.Category sub : category.categories) {
+                visitPayloads(sub, path + "/" + sub.name, visitor);
+            }
+        }
+    }
+
+    /**
+     * Copy of this definition restricted to the categories, keywords and
+     * wordlists tagged for {@code section}. Untagged entries apply everywhere,
+     * a subcategory without tags inherits the tags of its parent.
+     */
+    public PayloadDefinition forSection(Completer.HttpSection section) {
+        PayloadDefinition filtered = new PayloadDefinition();
+        filtered.shortcut_search_and_replace = shortcut_search_and_replace;
+        filtered.shortcut_add_custom_keyword = shortcut_add_custom_keyword;
+        filtered.shortcut_payload_menu = shortcut_payload_menu;
+        filtered.shortcut_collaborator = shortcut_collaborator;
+
+        if (categories != null) {
+            filtered.categories = new ArrayList<>();
+            for (Category category : categories) {
+                Category copy = filterCategory(category, null, section);
+                if (copy != null) {
+                    filtered.categories.add(copy);
+                }
+            }
+        }
+        if (keywords != null) {
+            filtered.keywords = keywords.stream()
+                    .filter(category -> category != null && appliesTo(category.sections, section))
+                    .toList();
+        }
+        if (wordlists != null) {
+            filtered.wordlists = wordlists.stream()
+                    .filter(wordlist -> wordlist != null && appliesTo(wordlist.sections, section))
+                    .toList();
+        }
+        return filtered;
+    }
+
+    private Category filterCategory(Category category, List<String> inherited, Completer.HttpSection section) {
+        List<String> sections = category.sections != null && !category.sections.isEmpty() ? category.sections : inherited;
+        Category copy = new Category();
+        copy.name = category.name;
+        copy.sections = sections;
+
+        if (category.payloads != null && appliesTo(sections, section)) {
+            copy.payloads = category.payloads;
+        }
+        if (category.categories != null) {
+            copy.categories = new ArrayList<>();
+            for (Category sub : category.categories) {
+                Category subCopy = filterCategory(sub, sections, section);
+                if (subCopy != null) {
+                    copy.categories.add(subCopy);
+                }
+            }
+        }
+        return copy.isEmpty() ? null : copy;
+    }
+
+    /**
+     * Whether an entry tagged with {@code sections} is suggested in {@code section}.
+     * Nothing is filtered out when the section is unknown.
+     */
+    public static boolean appliesTo(List<String> sections, Completer.HttpSection section) {
+        if (section == Completer.HttpSection.UNKNOWN || sections == null || sections.isEmpty()) {
+            return true;
+        }
+        for (String name : sections) {
+            if (section.name().equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void collectValues(PayloadDefinition.Category category, Set<String> collector) {
         if (category.payloads != null) {
             for (PayloadDefinition.Payload payload : category.payloads) {
@@ -100,6 +205,7 @@ public class PayloadDefinition {
 
     public static class Category {
         public String name;
+        public List<String> sections; // REQUEST_LINE, HEADERS or BODY, could be null
         public List<Payload> payloads;
         public List<Category> categories;
 
@@ -116,8 +222,15 @@ public class PayloadDefinition {
         public String shortcut; // could be null
     }
 
+    public static class Wordlist {
+        public String name;
+        public String path; // plain text file with one payload per line, or a directory of .txt/.lst files
+        public List<String> sections;
+    }
+
     public static class KeywordCategory {
         public String name;
+        public List<String> sections;
         public List<String> values;
     }
 }
\ No newline at end of file
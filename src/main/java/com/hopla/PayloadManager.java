@@ -14,8 +14,13 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static com.hopla.Constants.DEFAULT_RESOURCE_ENCRYPT_KEY;
@@ -23,35 +28,71 @@ import static com.hopla.Utils.isYamlFile;
 
 public class PayloadManager {
 
+    public static final int MIN_INFIX_LENGTH = 2;
+    // the popup list only renders the visible rows, longer lists cost little
+    static final int MAX_SUGGESTIONS = 200;
+    static final int CACHE_SIZE = 512;
     private final MontoyaApi api;
     private final Preferences preferences;
     private final LocalPayloadsManager localPayloadsManager;
-    private PayloadDefinition payloads;
+    private final UsageTracker usage = new UsageTracker();
+    private final SuggestionCache cache = new SuggestionCache(CACHE_SIZE);
+    private final AtomicReference<Map<Completer.HttpSection, SuggestionSnapshot>> snapshots = new AtomicReference<>(Map.of());
+    // snapshots are built and wordlists loaded off the EDT, one at a time
+    private final ExecutorService snapshotBuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "HopLa snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private volatile PayloadDefinition payloads;
+    private volatile LoadedWordlists wordlists = LoadedWordlists.NONE;
+    // copied on the thread editing them, the builder only reads the copy
+    private volatile Map<String, String> keywords;
 
     public PayloadManager(MontoyaApi api, LocalPayloadsManager localPayloadsManager) {
         this.api = api;
         this.preferences = api.persistence().preferences();
         this.localPayloadsManager = localPayloadsManager;
+        this.keywords = localPayloadsManager.getKeywords();
         loadPayloads();
+        localPayloadsManager.addChangeListener(this::keywordsChanged);
+        loadUsage();
     }
 
-    private static List<String> filterSuggestions(String input, Set<String> options) {
-        return options.stream()
-                .filter(word -> word.startsWith(input))
-                .map(word -> new AbstractMap.SimpleEntry<>(word, longestCommonPrefixLength(input, word)))
-                .filter(entry -> entry.getValue() > 0)
-                .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
-                .map(Map.Entry::getKey)
-                .toList();
+    private void loadUsage() {
+        try {
+            usage.load(preferences.getString(Constants.PREFERENCE_USAGE));
+        } catch (Exception e) {
+            api.logging().logToError("Failed to load payload usage: " + e.getMessage());
+        }
     }
 
-    private static int longestCommonPrefixLength(String a, String b) {
-        int len = Math.min(a.length(), b.length());
-        int i = 0;
-        while (i < len && a.charAt(i) == b.charAt(i)) {
-            i++;
+    public void dispose() {
+        snapshotBuilder.shutdownNow();
+        saveUsage();
+        api.logging().logToOutput("Suggestion cache: " + cache);
+    }
+
+    private void saveUsage() {
+        if (usage.size() > 0) {
+            preferences.setString(Constants.PREFERENCE_USAGE, usage.dump());
         }
-        return i;
+    }
+
+    public void clearUsage() {
+        usage.clear();
+        cache.invalidate();
+        preferences.deleteString(Constants.PREFERENCE_USAGE);
+    }
+
+    /**
+     * Records an inserted payload, the most used ones are suggested first.
+     */
+    public void recordUsage(String value) {
+        usage.record(value);
+        // the ranking changed
+        cache.invalidate();
     }
 
     public void export() {
@@ -99,7 +140,7 @@ public class PayloadManager {
 
         if (savedPath != null && !savedPath.isEmpty() && !Constants.DEFAULT_PAYLOAD_RESOURCE_PATH.equals(savedPath)) {
             try {
-                payloads = loadFromFile(savedPath, false);
+                setPayloads(loadFromFile(savedPath, false));
                 api.logging().logToOutput("Loaded payloads from saved path: " + savedPath);
                 return;
             } catch (Exception e) {
@@ -112,9 +153,9 @@ public class PayloadManager {
         try (InputStream in = getClass().getResourceAsStream(Constants.DEFAULT_PAYLOAD_RESOURCE_PATH)) {
             if (in == null) {
                 api.logging().logToError("Default payload resource not found. " + Constants.DEFAULT_PAYLOAD_RESOURCE_PATH);
-                payloads = new PayloadDefinition();
+                setPayloads(new PayloadDefinition());
             } else {
-                payloads = loadFromInputStream(in, true);
+                setPayloads(loadFromInputStream(in, true));
                 preferences.setString(Constants.PREFERENCE_CUSTOM_PATH, Constants.DEFAULT_PAYLOAD_RESOURCE_PATH);
                 api.logging().logToOutput("Loaded payloads from default resource. " + Constants.DEFAULT_PAYLOAD_RESOURCE_PATH);
             }
@@ -122,10 +163,124 @@ public class PayloadManager {
             api.logging().logToError(Constants.ERROR_INVALID_FILE + e.getMessage());
             Utils.alert(Constants.ERROR_INVALID_FILE + e.getMessage());
             api.logging().logToError("Failed to load default payloads resource. " + Constants.DEFAULT_PAYLOAD_RESOURCE_PATH);
-            payloads = new PayloadDefinition();
+            setPayloads(new PayloadDefinition());
+        }
+    }
+
+
+    /**
+     * The payloads are used right away, their suggestions follow once the
+     * snapshot is built in the background, then again with the wordlists.
+     */
+    private void setPayloads(PayloadDefinition definition) {
+        this.payloads = definition;
+        rebuildSnapshot();
+        if (definition.wordlists == null || definition.wordlists.isEmpty()) {
+            return;
+        }
+
+        snapshotBuilder.execute(() -> {
+            // another file was loaded meanwhile
+            if (payloads != definition) {
+                return;
+            }
+            try {
+                wordlists = new LoadedWordlists(definition, loadWordlists(definition));
+                rebuildSnapshot();
+            } catch (Exception e) {
+                api.logging().logToError("Failed to load wordlists: " + e.getMessage());
+            }
+        });
+    }
+
+    private void keywordsChanged() {
+        keywords = localPayloadsManager.getKeywords();
+        rebuildSnapshot();
+    }
+
+    /**
+     * Rebuilds the snapshots off the EDT from the current payloads, keywords and
+     * wordlists. A rebuild requested while another one waits is merged into it.
+     */
+    private void rebuildSnapshot() {
+        if (snapshotBuilder.isShutdown() || !rebuildPending.compareAndSet(false, true)) {
+            return;
         }
+        snapshotBuilder.execute(() -> {
+            // cleared before reading, so a change from now on schedules another rebuild
+            rebuildPending.set(false);
+            try {
+                PayloadDefinition definition = payloads;
+                LoadedWordlists loaded = wordlists;
+                Map<Completer.HttpSection, List<CompactPayloadStore>> bySection = loaded.definition() == definition ? loaded.bySection() : Map.of();
+                snapshots.set(SuggestionSnapshot.buildSections(definition, keywords, bySection));
+                cache.invalidate();
+            } catch (Exception e) {
+                api.logging().logToError("Failed to build suggestions: " + e.getMessage());
+            }
+        });
     }
 
+    // wordlists of the payload file they were loaded for
+    private record LoadedWordlists(PayloadDefinition definition, Map<Completer.HttpSection, List<CompactPayloadStore>> bySection) {
+        static final LoadedWordlists NONE = new LoadedWordlists(null, Map.of());
+    }
+
+    /**
+     * Plain text files sharing the same sections are loaded into one in-memory
+     * store, each directory gets its own memory mapped index.
+     */
+    private Map<Completer.HttpSection, List<CompactPayloadStore>> loadWordlists(PayloadDefinition definition) {
+        if (definition.wordlists == null || definition.wordlists.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<List<String>, CompactPayloadStore.Builder> builders = new LinkedHashMap<>();
+        Map<CompactPayloadStore, List<String>> directories = new LinkedHashMap<>();
+        for (PayloadDefinition.Wordlist wordlist : definition.wordlists) {
+            if (wordlist == null || wordlist.path == null || wordlist.path.isBlank()) {
+                continue;
+            }
+            Path path = Paths.get(wordlist.path);
+            try {
+                if (Files.isDirectory(path)) {
+                    CompactPayloadStore store = WordlistDirectoryIndex.open(path, api.logging()::logToError);
+                    api.logging().logToOutput("Wordlist directory indexed: " + path + ", " + store.size() + " payloads");
+                    directories.put(store, wordlist.sections);
+                } else {
+                    CompactPayloadStore.Builder builder = builders.computeIfAbsent(wordlist.sections, k -> new CompactPayloadStore.Builder());
+                    int skipped = builder.addLines(path, builder.addCategory(wordlist.name != null ? wordlist.name : wordlist.path));
+                    if (skipped > 0) {
+                        api.logging().logToError("Wordlist " + path + ": skipped " + skipped + " lines that are not valid UTF-8");
+                    }
+                }
+            } catch (Exception e) {
+                api.logging().logToError("Failed to load wordlist: " + wordlist.path + ", " + e.getMessage());
+            }
+        }
+
+        Map<CompactPayloadStore, List<String>> stores = new LinkedHashMap<>();
+        for (Map.Entry<List<String>, CompactPayloadStore.Builder> entry : builders.entrySet()) {
+            CompactPayloadStore store = entry.getValue().build();
+            if (store.size() > 0) {
+                api.logging().logToOutput("Wordlists loaded: " + store.size() + " payloads, " + store.buffer().capacity() / 1024 + " KB");
+                stores.put(store, entry.getKey());
+            }
+        }
+        stores.putAll(directories);
+
+        Map<Completer.HttpSection, List<CompactPayloadStore>> bySection = new EnumMap<>(Completer.HttpSection.class);
+        for (Completer.HttpSection section : Completer.HttpSection.values()) {
+            List<CompactPayloadStore> sectionStores = new ArrayList<>();
+            stores.forEach((store, sections) -> {
+                if (PayloadDefinition.appliesTo(sections, section)) {
+                    sectionStores.add(store);
+                }
+            });
+            bySection.put(section, sectionStores);
+        }
+        return bySection;
+    }
 
     private PayloadDefinition loadFromFile(String path, boolean decrypt) throws Exception {
         try (InputStream in = Files.newInputStream(Paths.get(path))) {
@@ -165,9 +320,52 @@ public class PayloadManager {
         }
 
         validateShortcuts(data);
+        validateSections(data);
         return data;
     }
 
+    private void validateSections(PayloadDefinition definition) {
+        if (definition.categories != null) {
+            for (PayloadDefinition.Category category : definition.categories) {
+                recursiveValidateSections(category);
+            }
+        }
+        if (definition.keywords != null) {
+            for (PayloadDefinition.KeywordCategory category : definition.keywords) {
+                validateSections(category.sections, category.name);
+            }
+        }
+        if (definition.wordlists != null) {
+            for (PayloadDefinition.Wordlist wordlist : definition.wordlists) {
+                validateSections(wordlist.sections, wordlist.name);
+            }
+        }
+    }
+
+    private void recursiveValidateSections(PayloadDefinition.Category category) {
+        validateSections(category.sections, category.name);
+        if (category.categories != null) {
+            for (PayloadDefinition.Category sub : category.categories) {
+                recursiveValidateSections(sub);
+            }
+        }
+    }
+
+    private void validateSections(List<String> sections, String owner) {
+        if (sections == null) {
+            return;
+        }
+        for (String section : sections) {
+            boolean valid = section != null && Arrays.stream(Completer.HttpSection.values())
+                    .anyMatch(s -> s != Completer.HttpSection.UNKNOWN && s.name().equalsIgnoreCase(section));
+            if (!valid) {
+                throw new IllegalArgumentException(
+                        "Invalid section: " + section + " (used in: " + owner + "), expected REQUEST_LINE, HEADERS or BODY"
+                );
+            }
+        }
+    }
+
     private void validateShortcuts(PayloadDefinition definition) {
         Set<String> shortcuts = new HashSet<>();
 
@@ -207,26 +405,44 @@ public class PayloadManager {
         }
     }
 
-    public List<String> getSuggestions(String input) {
-        List<String> suggestions = new ArrayList<>();
-        Set<String> localPayloadsSet = new HashSet<>(localPayloadsManager.getPayloads());
+    public List<Suggestion> getSuggestions(String input) {
+        return getSuggestions(input, Completer.HttpSection.UNKNOWN);
+    }
 
-        List<String> results = filterSuggestions(input, localPayloadsSet);
-        suggestions.addAll(results);
-        if (suggestions.size() >= 25) {
-            return suggestions.subList(0, 25);
-        }
+    public List<Suggestion> getSuggestions(String input, Completer.HttpSection section) {
+        return cache.get(input, section, () -> snapshot(section).query(input, MAX_SUGGESTIONS, usage));
+    }
 
-        results = filterSuggestions(input, this.payloads.flattenPayloadValues());
-        suggestions.addAll(results);
-        if (suggestions.size() >= 25) {
-            return suggestions.subList(0, 25);
-        }
+    public List<Suggestion> getSuggestions(String input, Completer.HttpSection section, SuggestionCursor cursor) {
+        return getSuggestions(cache, snapshot(section), section, input, cursor, usage);
+    }
+
+    /**
+     * The cursor is advanced on cache hits too, so the next miss only searches
+     * the candidates of this input.
+     */
+    static List<Suggestion> getSuggestions(SuggestionCache cache, SuggestionSnapshot snapshot, Completer.HttpSection section,
+                                           String input, SuggestionCursor cursor, UsageTracker usage) {
+        cursor.advance(snapshot, input);
+        return cache.get(input, section, () -> cursor.query(snapshot, input, MAX_SUGGESTIONS, usage));
+    }
 
-        results = filterSuggestions(input, this.payloads.flattenKeywordsValues());
-        suggestions.addAll(results);
+    /**
+     * Payloads and custom keywords containing {@code fragment} anywhere.
+     */
+    public List<Suggestion> searchInfix(String fragment) {
+        return searchInfix(fragment, Completer.HttpSection.UNKNOWN);
+    }
+
+    public List<Suggestion> searchInfix(String fragment, Completer.HttpSection section) {
+        if (fragment.length() < MIN_INFIX_LENGTH) {
+            return new ArrayList<>();
+        }
+        return snapshot(section).queryInfix(fragment, MAX_SUGGESTIONS);
+    }
 
-        return suggestions.subList(0, Math.min(25, suggestions.size()));
+    private SuggestionSnapshot snapshot(Completer.HttpSection section) {
+        return snapshots.get().getOrDefault(section == null ? Completer.HttpSection.UNKNOWN : section, SuggestionSnapshot.EMPTY);
     }
 
     public void choosePayloadFile() {
@@ -253,7 +469,7 @@ public class PayloadManager {
                     return;
                 }
 
-                this.payloads = loaded;
+                setPayloads(loaded);
                 preferences.setString(Constants.PREFERENCE_CUSTOM_PATH, path);
                 Utils.success(Constants.FILE_LOADED);
                 api.logging().logToOutput(Constants.FILE_LOADED + ": " + path);
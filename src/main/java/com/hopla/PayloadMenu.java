@@ -12,16 +12,21 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowFocusListener;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JDialog;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
 import javax.swing.JTree;
 import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
 
@@ -143,19 +148,7 @@ public class PayloadMenu {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ENTER) {
-                    TreePath path = tree.getSelectionPath();
-                    if (path != null) {
-                        DefaultMutableTreeNode node = (DefaultMutableTreeNode) path.getLastPathComponent();
-                        if (node.isLeaf()) {
-                            activateNode(node, messageEditor, event);
-                        } else {
-                            if (tree.isExpanded(path)) {
-                                tree.collapsePath(path);
-                            } else {
-                                tree.expandPath(path);
-                            }
-                        }
-                    }
+                    activatePath(tree, tree.getSelectionPath(), messageEditor, event);
                 } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
                     dialog.dispose();
                 }
@@ -167,6 +160,52 @@ public class PayloadMenu {
         scrollPane.getViewport().setBackground(bg);
         dialog.add(scrollPane, BorderLayout.CENTER);
 
+        // Search payloads containing the typed fragment
+        JTextField searchField = new JTextField();
+        searchField.setBackground(bg);
+        searchField.setForeground(fg);
+        searchField.setCaretColor(fg);
+        searchField.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, selBg));
+        DefaultTreeModel fullModel = (DefaultTreeModel) tree.getModel();
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterTree(tree, fullModel, searchField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterTree(tree, fullModel, searchField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        searchField.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int row = tree.getMinSelectionRow();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        selectRow(tree, row + 1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        selectRow(tree, row - 1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        activatePath(tree, tree.getSelectionPath(), messageEditor, event);
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        dialog.dispose();
+                        break;
+                }
+            }
+        });
+        dialog.add(searchField, BorderLayout.NORTH);
+
         // Positioning
         Point mousePos = MouseInfo.getPointerInfo().getLocation();
         mousePos.x -= MARGIN_PAYLOAD_MENU;
@@ -186,7 +225,44 @@ public class PayloadMenu {
         });
 
         dialog.setVisible(true);
-        tree.requestFocusInWindow();
+        searchField.requestFocusInWindow();
+    }
+
+    private void filterTree(JTree tree, DefaultTreeModel fullModel, String fragment) {
+        if (fragment.trim().length() < PayloadManager.MIN_INFIX_LENGTH) {
+            tree.setModel(fullModel);
+            return;
+        }
+
+        DefaultMutableTreeNode results = new DefaultMutableTreeNode("Results");
+        for (Suggestion suggestion : payloadManager.searchInfix(fragment.trim())) {
+            results.add(new DefaultMutableTreeNode(new SearchResultWrapper(suggestion)));
+        }
+        tree.setModel(new DefaultTreeModel(results));
+        selectRow(tree, 0);
+    }
+
+    private void selectRow(JTree tree, int row) {
+        if (tree.getRowCount() == 0) {
+            return;
+        }
+        int target = Math.max(0, Math.min(row, tree.getRowCount() - 1));
+        tree.setSelectionRow(target);
+        tree.scrollRowToVisible(target);
+    }
+
+    private void activatePath(JTree tree, TreePath path, MessageEditorHttpRequestResponse messageEditor, InputEvent event) {
+        if (path == null) {
+            return;
+        }
+        DefaultMutableTreeNode node = (DefaultMutableTreeNode) path.getLastPathComponent();
+        if (node.isLeaf()) {
+            activateNode(node, messageEditor, event);
+        } else if (tree.isExpanded(path)) {
+            tree.collapsePath(path);
+        } else {
+            tree.expandPath(path);
+        }
     }
 
     private void activateNode(DefaultMutableTreeNode node, MessageEditorHttpRequestResponse messageEditor, InputEvent event) {
@@ -195,6 +271,9 @@ public class PayloadMenu {
         if (userObject instanceof PayloadWrapper) {
             PayloadWrapper wrapper = (PayloadWrapper) userObject;
             insertPayloadAndClose(messageEditor, wrapper.payload.value, event);
+        } else if (userObject instanceof SearchResultWrapper) {
+            SearchResultWrapper wrapper = (SearchResultWrapper) userObject;
+            insertPayloadAndClose(messageEditor, wrapper.suggestion.value(), event);
         } else if (userObject instanceof MenuItemWrapper) {
             MenuItemWrapper wrapper = (MenuItemWrapper) userObject;
             wrapper.item.doClick(); // This triggers the action listener which handles closing
@@ -206,6 +285,7 @@ public class PayloadMenu {
 
     private void insertPayloadAndClose(MessageEditorHttpRequestResponse messageEditor, String value, InputEvent event) {
         Utils.insertPayload(messageEditor, value, event);
+        payloadManager.recordUsage(value);
         if (dialog != null) {
             dialog.dispose();
         }
@@ -269,6 +349,21 @@ public class PayloadMenu {
         }
     }
 
+    private static class SearchResultWrapper {
+
+        Suggestion suggestion;
+
+        public SearchResultWrapper(Suggestion suggestion) {
+            this.suggestion = suggestion;
+        }
+
+        @Override
+        public String toString() {
+            String label = suggestion.label();
+            return label.length() > 80 ? label.substring(0, 77) + "..." : label;
+        }
+    }
+
     private static class MenuItemWrapper {
 
         JMenuItem item;
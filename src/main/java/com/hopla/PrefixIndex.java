@@ -0,0 +1,44 @@
+package com.hopla;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sorted completion candidates that can be narrowed by prefix. Values
+ * starting with a prefix are contiguous, so a query is a [from, to) range
+ * and a longer prefix only needs to search the range of a shorter one.
+ */
+public interface PrefixIndex {
+
+    int size();
+
+    /**
+     * First index of [from, to) whose value is not lower than {@code prefix}.
+     */
+    int lowerBound(String prefix, int from, int to);
+
+    /**
+     * First index of [from, to) past the values starting with {@code prefix}.
+     */
+    int upperBound(String prefix, int from, int to);
+
+    /**
+     * Appends up to {@code limit} values of the range [from, to) to {@code out}.
+     *
+     * @return the number of values added
+     */
+    int collect(int from, int to, List<String> out, int limit);
+
+    /**
+     * Whether {@code value} itself is in the range [from, to).
+     */
+    default boolean contains(String value, int from, int to) {
+        int index = lowerBound(value, from, to);
+        if (index >= to) {
+            return false;
+        }
+        List<String> found = new ArrayList<>(1);
+        collect(index, index + 1, found, 1);
+        return found.get(0).equals(value);
+    }
+}
@@ -0,0 +1,42 @@
+package com.hopla;
+
+/**
+ * One completion candidate: the text inserted, the text listed, where it comes
+ * from and the category it belongs to (category path, keyword list or custom
+ * keyword name). {@code score} is the usage score of recently used values.
+ */
+public record Suggestion(String value, String label, Source source, String category, double score) {
+
+    public enum Source {
+        CUSTOM,
+        PAYLOAD,
+        WORDLIST,
+        KEYWORD,
+        AI
+    }
+
+    public static Suggestion of(String value, Source source, String category) {
+        return new Suggestion(value, value, source, category, 0);
+    }
+
+    public Suggestion withScore(double score) {
+        return new Suggestion(value, label, source, category, score);
+    }
+
+    /**
+     * Short hint listed next to the label.
+     */
+    public String hint() {
+        return switch (source) {
+            case CUSTOM -> "custom";
+            case AI -> "AI";
+            case WORDLIST -> "wordlist";
+            default -> category == null ? "" : category;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
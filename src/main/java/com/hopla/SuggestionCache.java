@@ -0,0 +1,91 @@
+package com.hopla;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of suggestion lists keyed by input, HTTP section and
+ * version. Bumping the version with {@link #invalidate()} makes every cached
+ * list unreachable, so a reload never serves stale suggestions.
+ */
+public final class SuggestionCache {
+
+    private final int capacity;
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Map<Key, List<Suggestion>> entries;
+
+    public SuggestionCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<Suggestion>> eldest) {
+                return size() > SuggestionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Cached suggestions of {@code input}, computed by {@code query} on a miss.
+     * Callers get their own copy of the list.
+     */
+    public List<Suggestion> get(String input, Completer.HttpSection section, Supplier<List<Suggestion>> query) {
+        Key key = new Key(input, section, version.get());
+        List<Suggestion> cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return new ArrayList<>(cached);
+        }
+
+        misses.increment();
+        List<Suggestion> suggestions = query.get();
+        synchronized (entries) {
+            // computed against an older version, nobody can hit it anymore
+            if (key.version() == version.get()) {
+                entries.put(key, List.copyOf(suggestions));
+            }
+        }
+        return suggestions;
+    }
+
+    public void invalidate() {
+        synchronized (entries) {
+            version.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        long hitCount = hits();
+        long total = hitCount + misses();
+        return "size " + size() + "/" + capacity + ", hits " + hitCount + ", misses " + misses()
+                + (total == 0 ? "" : ", hit rate " + (hitCount * 100 / total) + "%");
+    }
+
+    private record Key(String input, Completer.HttpSection section, long version) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.hopla;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Per-editor memory of the candidates computed for the previous inputs.
+ * While the user keeps typing, each query only searches the candidates of the
+ * previous one. On backspace the cursor falls back to the cached candidates of
+ * the shorter input instead of searching the whole snapshot again.
+ * Not thread safe, a cursor belongs to a single editor.
+ */
+public final class SuggestionCursor {
+
+    private static final int MAX_DEPTH = 64;
+
+    private final Deque<SuggestionSnapshot.Candidates> frames = new ArrayDeque<>();
+    private SuggestionSnapshot snapshot;
+
+    public List<Suggestion> query(SuggestionSnapshot current, String input, int limit) {
+        return query(current, input, limit, null);
+    }
+
+    /**
+     * Same as {@link #query(SuggestionSnapshot, String, int)}, the values
+     * recently used according to {@code usage} ranked first within their group.
+     */
+    public List<Suggestion> query(SuggestionSnapshot current, String input, int limit, UsageTracker usage) {
+        SuggestionSnapshot.Candidates candidates = narrow(current, input);
+        return candidates == null ? new ArrayList<>() : snapshot.collect(candidates, limit, usage);
+    }
+
+    /**
+     * Narrows the candidates to {@code input} without collecting them, e.g.
+     * when its suggestions came from a cache, so the next query still only
+     * searches the candidates of this one.
+     */
+    public void advance(SuggestionSnapshot current, String input) {
+        narrow(current, input);
+    }
+
+    // the candidates of input, null when it is empty
+    private SuggestionSnapshot.Candidates narrow(SuggestionSnapshot current, String input) {
+        if (input.isEmpty()) {
+            frames.clear();
+            return null;
+        }
+        if (current != snapshot) {
+            snapshot = current;
+            frames.clear();
+        }
+
+        while (!frames.isEmpty() && !input.startsWith(frames.peek().input)) {
+            frames.pop();
+        }
+
+        SuggestionSnapshot.Candidates candidates = frames.peek();
+        if (candidates == null || !candidates.input.equals(input)) {
+            if (frames.size() >= MAX_DEPTH) {
+                frames.removeLast();
+            }
+            candidates = snapshot.narrow(candidates, input);
+            frames.push(candidates);
+        }
+        return candidates;
+    }
+
+    public void reset() {
+        frames.clear();
+    }
+
+    // inputs of the candidates kept, latest first
+    List<String> inputs() {
+        return frames.stream().map(candidates -> candidates.input).toList();
+    }
+}
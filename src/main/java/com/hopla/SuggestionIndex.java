@@ -0,0 +1,93 @@
+package com.hopla;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable, lexicographically sorted set of completion candidates.
+ * A prefix query binary-searches the first match and walks forward until the
+ * prefix stops matching, so its cost is O(log n * prefix length + K) instead of
+ * a scan of the whole set.
+ */
+public final class SuggestionIndex implements PrefixIndex {
+
+    public static final SuggestionIndex EMPTY = new SuggestionIndex(new String[0]);
+
+    private final String[] values;
+
+    private SuggestionIndex(String[] sortedValues) {
+        this.values = sortedValues;
+    }
+
+    public static SuggestionIndex of(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        String[] sorted = values.stream()
+                .filter(Objects::nonNull)
+                .filter(value -> !value.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+        Arrays.sort(sorted);
+        return new SuggestionIndex(sorted);
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Appends up to {@code limit} values starting with {@code prefix} to {@code out}.
+     *
+     * @return the number of values added
+     */
+    public int collect(String prefix, List<String> out, int limit) {
+        if (prefix.isEmpty()) {
+            return 0;
+        }
+        int from = lowerBound(prefix, 0, values.length);
+        return collect(from, upperBound(prefix, from, values.length), out, limit);
+    }
+
+    @Override
+    public int collect(int from, int to, List<String> out, int limit) {
+        int end = Math.min(to, from + Math.max(limit, 0));
+        for (int i = from; i < end; i++) {
+            out.add(values[i]);
+        }
+        return Math.max(end - from, 0);
+    }
+
+    @Override
+    public int lowerBound(String prefix, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int upperBound(String prefix, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid].startsWith(prefix) || values[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,57 @@
+package com.hopla;
+
+import javax.swing.AbstractListModel;
+import java.util.List;
+
+/**
+ * List model over the current suggestion results, reused across keystrokes.
+ * Replacing the results fires one change event for the rows both lists share
+ * and one for the rows added or removed, the list only repaints what is
+ * visible.
+ */
+public class SuggestionListModel extends AbstractListModel<Suggestion> {
+
+    private List<Suggestion> suggestions = List.of();
+
+    @Override
+    public int getSize() {
+        return suggestions.size();
+    }
+
+    @Override
+    public Suggestion getElementAt(int index) {
+        return suggestions.get(index);
+    }
+
+    public void setSuggestions(List<Suggestion> suggestions) {
+        int oldSize = this.suggestions.size();
+        int newSize = suggestions.size();
+        this.suggestions = suggestions;
+
+        int common = Math.min(oldSize, newSize);
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+        if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        } else if (newSize < oldSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        }
+    }
+
+    /**
+     * The suggestion with the longest text, to size every cell from it.
+     */
+    public Suggestion widest() {
+        Suggestion widest = null;
+        int width = -1;
+        for (Suggestion suggestion : suggestions) {
+            int length = suggestion.label().length() + suggestion.hint().length();
+            if (length > width) {
+                widest = suggestion;
+                width = length;
+            }
+        }
+        return widest;
+    }
+}
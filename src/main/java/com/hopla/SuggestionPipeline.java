@@ -0,0 +1,74 @@
+package com.hopla;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs suggestion lookups on a dedicated thread so typing never waits for them.
+ * Only the latest query is kept while another one runs, so a burst of
+ * keystrokes costs one lookup. Each query is tagged with a generation number
+ * and its result reaches the EDT only if no newer query or cancel happened.
+ */
+public final class SuggestionPipeline {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "HopLa suggestions");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<Runnable> pending = new AtomicReference<>();
+
+    /**
+     * Computes {@code query} off the EDT, then hands its result to {@code apply}
+     * on the EDT unless it went stale meanwhile.
+     */
+    public <T> void submit(Supplier<T> query, Consumer<T> apply) {
+        long current = generation.incrementAndGet();
+        Runnable task = () -> {
+            if (current != generation.get()) {
+                return;
+            }
+            T result = query.get();
+            SwingUtilities.invokeLater(() -> {
+                if (current == generation.get()) {
+                    apply.accept(result);
+                }
+            });
+        };
+
+        // a task still waiting is replaced, the drain already scheduled runs this one instead
+        if (pending.getAndSet(task) == null) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Drops the waiting query and the results not applied yet.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        pending.set(null);
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void drain() {
+        Runnable task;
+        while ((task = pending.getAndSet(null)) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                HopLa.montoyaApi.logging().logToError("Suggestion lookup error: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.hopla;
+
+import javax.swing.JComponent;
+import javax.swing.JLayeredPane;
+import javax.swing.JPanel;
+import javax.swing.JRootPane;
+import javax.swing.JWindow;
+import javax.swing.SwingUtilities;
+import javax.swing.text.JTextComponent;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.GraphicsConfiguration;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+
+import static com.hopla.Utils.generateJWindow;
+
+/**
+ * Window of the autocompletion list. It is laid out once, later keystrokes only
+ * move or resize it when the caret or the number of rows changed, it is never
+ * packed. It is either a heavyweight {@link JWindow}, or a panel in the popup
+ * layer of the editor's window which never creates a native window.
+ */
+public class SuggestionPopup {
+
+    private final boolean lightweight;
+    private final JWindow window;
+    private final JPanel panel;
+    private JLayeredPane layer;
+    private GraphicsConfiguration screen;
+    private Rectangle screenBounds;
+
+    public SuggestionPopup(JComponent content, Color background, boolean lightweight) {
+        this.lightweight = lightweight;
+        if (lightweight) {
+            window = null;
+            panel = new JPanel(new BorderLayout());
+            panel.setBackground(background);
+            panel.add(content, BorderLayout.CENTER);
+            panel.setVisible(false);
+        } else {
+            panel = null;
+            window = generateJWindow();
+            window.getContentPane().setBackground(background);
+            window.getContentPane().add(content, BorderLayout.CENTER);
+        }
+    }
+
+    /**
+     * Shows the popup below {@code caret}, given in {@code source} coordinates,
+     * or above it when there is more room there, within the screen or the
+     * editor's window.
+     *
+     * @param minHeight height kept even when neither side has room, one row
+     */
+    public void show(JTextComponent source, Rectangle caret, int width, int height, int margin, int minHeight) {
+        if (lightweight) {
+            showInLayer(source, caret, width, height, margin, minHeight);
+            return;
+        }
+
+        Point location = source.getLocationOnScreen();
+        Rectangle onScreen = new Rectangle(location.x + caret.x, location.y + caret.y, caret.width, caret.height);
+        Rectangle target = place(onScreen, width, height, margin, minHeight, screenBounds(source));
+        if (!target.equals(window.getBounds())) {
+            window.setBounds(target);
+            window.validate();
+        }
+        if (!window.isVisible()) {
+            window.setVisible(true);
+        }
+    }
+
+    private void showInLayer(JTextComponent source, Rectangle caret, int width, int height, int margin, int minHeight) {
+        JRootPane root = SwingUtilities.getRootPane(source);
+        if (root == null) {
+            return;
+        }
+        JLayeredPane target = root.getLayeredPane();
+        if (target != layer) {
+            if (layer != null) {
+                layer.remove(panel);
+                layer.repaint();
+            }
+            target.add(panel, JLayeredPane.POPUP_LAYER);
+            layer = target;
+        }
+
+        Rectangle inLayer = SwingUtilities.convertRectangle(source, caret, layer);
+        Rectangle bounds = place(inLayer, width, height, margin, minHeight, new Rectangle(layer.getSize()));
+        if (!bounds.equals(panel.getBounds())) {
+            panel.setBounds(bounds);
+            panel.validate();
+        }
+        if (!panel.isVisible()) {
+            panel.setVisible(true);
+        }
+    }
+
+    /**
+     * Bounds of the popup for {@code caret}, both in the coordinates of
+     * {@code area}. The popup is {@code height - margin} high and starts
+     * {@code margin} below the top of the caret. When it does not fit there
+     * and there is more room above the caret, it ends at the top of the caret
+     * instead. It is cut to the room on its side, but never below
+     * {@code minHeight}, and kept within {@code area}.
+     */
+    static Rectangle place(Rectangle caret, int width, int height, int margin, int minHeight, Rectangle area) {
+        int wanted = Math.max(height - margin, minHeight);
+        int bottom = area.y + area.height;
+        int below = caret.y + margin;
+        int roomBelow = bottom - below;
+        int roomAbove = Math.min(caret.y, bottom) - area.y;
+
+        int y;
+        int cut;
+        if (roomBelow >= wanted || roomBelow >= roomAbove) {
+            cut = Math.max(Math.min(wanted, roomBelow), minHeight);
+            y = below;
+        } else {
+            cut = Math.max(Math.min(wanted, roomAbove), minHeight);
+            y = caret.y - cut;
+        }
+        y = Math.max(area.y, Math.min(y, bottom - cut));
+        int x = Math.max(area.x, Math.min(caret.x, area.x + area.width - width));
+        return new Rectangle(x, y, width, cut);
+    }
+
+    // usable area of the editor's screen, computed again only when it moves to another screen
+    private Rectangle screenBounds(JComponent source) {
+        GraphicsConfiguration configuration = source.getGraphicsConfiguration();
+        if (configuration != screen || screenBounds == null) {
+            screen = configuration;
+            Rectangle bounds = configuration.getBounds();
+            Insets insets = Toolkit.getDefaultToolkit().getScreenInsets(configuration);
+            screenBounds = new Rectangle(bounds.x + insets.left, bounds.y + insets.top,
+                    bounds.width - insets.left - insets.right, bounds.height - insets.top - insets.bottom);
+        }
+        return screenBounds;
+    }
+
+    public void hide() {
+        if (lightweight) {
+            panel.setVisible(false);
+        } else {
+            window.setVisible(false);
+        }
+    }
+
+    public boolean isVisible() {
+        return lightweight ? panel.isVisible() : window.isVisible();
+    }
+
+    public void dispose() {
+        if (lightweight) {
+            if (layer != null) {
+                layer.remove(panel);
+                layer.repaint();
+                layer = null;
+            }
+        } else {
+            window.dispose();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.hopla;
+
+import burp.api.montoya.MontoyaApi;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.ListCellRenderer;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Font;
+
+/**
+ * Lists a suggestion as its label, with its source or category dimmed on the right.
+ */
+public class SuggestionRenderer extends JPanel implements ListCellRenderer<Suggestion> {
+
+    private final JLabel label = new JLabel();
+    private final JLabel hint = new JLabel();
+    private final Color background;
+    private final Color foreground;
+    private final Color selectionBackground;
+    private final Color selectionForeground;
+    private final Color hintForeground;
+
+    public SuggestionRenderer(MontoyaApi api) {
+        super(new BorderLayout());
+        this.background = ThemeUtils.getBackgroundColor(api);
+        this.foreground = ThemeUtils.getForegroundColor(api);
+        this.selectionBackground = ThemeUtils.getSelectionBackgroundColor(api);
+        this.selectionForeground = ThemeUtils.getSelectionForegroundColor(api);
+        this.hintForeground = blend(foreground, background);
+
+        setBorder(BorderFactory.createEmptyBorder(1, 4, 1, 4));
+        hint.setBorder(BorderFactory.createEmptyBorder(0, 12, 0, 0));
+        hint.setFont(hint.getFont().deriveFont(Font.ITALIC));
+        add(label, BorderLayout.CENTER);
+        add(hint, BorderLayout.EAST);
+    }
+
+    private static Color blend(Color a, Color b) {
+        return new Color((a.getRed() + b.getRed()) / 2, (a.getGreen() + b.getGreen()) / 2, (a.getBlue() + b.getBlue()) / 2);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Suggestion> list, Suggestion suggestion, int index, boolean isSelected, boolean cellHasFocus) {
+        label.setText(suggestion.label());
+        hint.setText(suggestion.hint());
+
+        setBackground(isSelected ? selectionBackground : background);
+        label.setForeground(isSelected ? selectionForeground : foreground);
+        hint.setForeground(isSelected ? selectionForeground : hintForeground);
+        return this;
+    }
+}
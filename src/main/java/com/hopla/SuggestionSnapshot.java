@@ -0,0 +1,342 @@
+package com.hopla;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Immutable view of every completion candidate, built once when the payload
+ * file or the custom keywords change. Readers grab the current snapshot and
+ * query it without locking, a reload simply publishes a new one.
+ * The indexes hold plain search terms, each term resolving to one
+ * {@link Suggestion}. A value found in several sources is kept once, in the
+ * first of custom keywords, payloads and keywords.
+ */
+public final class SuggestionSnapshot {
+
+    // below this many prefix matches, typo and fuzzy matches fill the list
+    static final int FALLBACK_THRESHOLD = 25;
+    public static final SuggestionSnapshot EMPTY = new SuggestionSnapshot(Terms.EMPTY, List.of(), SharedIndexes.EMPTY, value -> true);
+
+    // custom keywords first, then payloads, then wordlists, then keywords
+    private final PrefixIndex[] tiers;
+    private final TypoIndex typos;
+    private final FuzzyIndex fuzzy;
+    private final InfixIndex infix;
+    private final PathIndex paths;
+    // every term of the in-memory indexes, wordlist values are resolved on the fly
+    private final Map<String, Suggestion> terms;
+    // values of the shared indexes suggested by this snapshot
+    private final Predicate<String> accept;
+
+    private SuggestionSnapshot(Terms terms, List<CompactPayloadStore> wordlists, SharedIndexes shared, Predicate<String> accept) {
+        List<PrefixIndex> indexes = new ArrayList<>();
+        indexes.add(SuggestionIndex.of(terms.custom));
+        indexes.add(SuggestionIndex.of(terms.payloads));
+        indexes.addAll(wordlists);
+        indexes.add(SuggestionIndex.of(terms.keywords));
+        this.tiers = indexes.toArray(new PrefixIndex[0]);
+        this.terms = terms.suggestions;
+        this.typos = shared.typos();
+        this.fuzzy = shared.fuzzy();
+        this.infix = shared.infix();
+        this.paths = shared.paths();
+        this.accept = accept;
+    }
+
+    public static SuggestionSnapshot build(PayloadDefinition definition, Map<String, String> customKeywords) {
+        return build(definition, customKeywords, List.of());
+    }
+
+    /**
+     * @param customKeywords custom keyword values by name, both are searched
+     */
+    public static SuggestionSnapshot build(PayloadDefinition definition, Map<String, String> customKeywords, List<CompactPayloadStore> wordlists) {
+        Terms terms = Terms.of(definition, customKeywords);
+        return new SuggestionSnapshot(terms, wordlists, SharedIndexes.of(definition, terms), value -> true);
+    }
+
+    /**
+     * One snapshot per HTTP section, each holding only the entries tagged for
+     * it. {@link Completer.HttpSection#UNKNOWN} holds everything. Custom
+     * keywords are suggested in every section. Only the prefix tiers are built
+     * per section, the typo, fuzzy, infix and path indexes are built once over
+     * everything and their results filtered by section.
+     */
+    public static Map<Completer.HttpSection, SuggestionSnapshot> buildSections(PayloadDefinition definition, Map<String, String> customKeywords, Map<Completer.HttpSection, List<CompactPayloadStore>> wordlists) {
+        Terms all = Terms.of(definition, customKeywords);
+        SharedIndexes shared = SharedIndexes.of(definition, all);
+        Map<Completer.HttpSection, SuggestionSnapshot> sections = new EnumMap<>(Completer.HttpSection.class);
+        for (Completer.HttpSection section : Completer.HttpSection.values()) {
+            List<CompactPayloadStore> sectionWordlists = wordlists.getOrDefault(section, List.of());
+            if (section == Completer.HttpSection.UNKNOWN) {
+                sections.put(section, new SuggestionSnapshot(all, sectionWordlists, shared, value -> true));
+            } else {
+                Terms terms = Terms.of(definition.forSection(section), customKeywords);
+                sections.put(section, new SuggestionSnapshot(terms, sectionWordlists, shared, terms.suggestions::containsKey));
+            }
+        }
+        return Collections.unmodifiableMap(sections);
+    }
+
+    /**
+     * Payloads and custom keywords containing {@code fragment}, shortest first.
+     */
+    public List<Suggestion> queryInfix(String fragment, int limit) {
+        List<String> matches = new ArrayList<>();
+        infix.collect(fragment, matches, limit, accept);
+        return resolve(matches, limit, Map.of(), new Scores(null, List.of()));
+    }
+
+    public List<Suggestion> query(String input, int limit) {
+        return query(input, limit, null);
+    }
+
+    /**
+     * Same as {@link #query(String, int)}, the values recently used according
+     * to {@code usage} ranked first within their group of matches.
+     */
+    public List<Suggestion> query(String input, int limit, UsageTracker usage) {
+        if (input.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return collect(narrow(null, input), limit, usage);
+    }
+
+    /**
+     * Computes the candidates matching {@code input}. When {@code parent} holds
+     * the candidates of a prefix of {@code input}, only those are searched.
+     */
+    Candidates narrow(Candidates parent, String input) {
+        int[] ranges = new int[tiers.length * 2];
+        for (int t = 0; t < tiers.length; t++) {
+            int from = parent == null ? 0 : parent.ranges[t * 2];
+            int to = parent == null ? tiers[t].size() : parent.ranges[t * 2 + 1];
+            from = tiers[t].lowerBound(input, from, to);
+            ranges[t * 2] = from;
+            ranges[t * 2 + 1] = tiers[t].upperBound(input, from, to);
+        }
+        return new Candidates(input, ranges, parent == null ? null : parent.fuzzyMatches);
+    }
+
+    List<Suggestion> collect(Candidates candidates, int limit) {
+        return collect(candidates, limit, null);
+    }
+
+    /**
+     * Matching values in the order of {@link #collectMatches}, the ones used
+     * recently according to {@code usage} ranked first within their group.
+     */
+    List<Suggestion> collect(Candidates candidates, int limit, UsageTracker usage) {
+        Scores scores = new Scores(usage, usage == null ? List.of() : usage.startingWith(candidates.input));
+        Map<String, Suggestion> fromWordlists = new HashMap<>();
+        return resolve(collectMatches(candidates, limit, fromWordlists, scores), limit, fromWordlists, scores);
+    }
+
+    /**
+     * Suggestions of {@code matches}, skipping values already listed, carrying
+     * their usage score.
+     */
+    private List<Suggestion> resolve(List<String> matches, int limit, Map<String, Suggestion> fromWordlists, Scores scores) {
+        List<Suggestion> suggestions = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < matches.size() && suggestions.size() < limit; i++) {
+            Suggestion suggestion = resolve(matches.get(i), fromWordlists);
+            if (seen.add(suggestion.value())) {
+                double score = scores.of(matches.get(i));
+                suggestions.add(score > 0 ? suggestion.withScore(score) : suggestion);
+            }
+        }
+        return suggestions;
+    }
+
+    private Suggestion resolve(String term, Map<String, Suggestion> fromWordlists) {
+        Suggestion suggestion = terms.get(term);
+        if (suggestion == null) {
+            suggestion = fromWordlists.get(term);
+        }
+        return suggestion != null ? suggestion : Suggestion.of(term, Suggestion.Source.WORDLIST, null);
+    }
+
+    /**
+     * Payloads matching a category path such as {@code xss.pol} first, then
+     * exact prefix matches, tier by tier. When they find fewer than
+     * {@link #FALLBACK_THRESHOLD}, keywords within a typo of the input come
+     * next, then fuzzy payload matches, up to that many suggestions.
+     * Each group is ranked by usage score, a prefix tier also takes in its
+     * used values that sort past its free slots.
+     *
+     * @param fromWordlists filled with the suggestions of the wordlist values
+     *                      returned, carrying the wordlist they come from
+     */
+    private List<String> collectMatches(Candidates candidates, int limit, Map<String, Suggestion> fromWordlists, Scores scores) {
+        List<String> suggestions = new ArrayList<>();
+        paths.collect(candidates.input, suggestions, limit, accept);
+        scores.rank(suggestions, 0);
+        int remaining = limit - suggestions.size();
+        for (int t = 0; t < tiers.length && remaining > 0; t++) {
+            int from = candidates.ranges[t * 2];
+            int to = candidates.ranges[t * 2 + 1];
+            int start = suggestions.size();
+            tiers[t].collect(from, to, suggestions, remaining);
+            // only used values starting with the input can be in the range
+            for (String value : scores.used) {
+                if (!suggestions.subList(start, suggestions.size()).contains(value) && tiers[t].contains(value, from, to)) {
+                    suggestions.add(value);
+                }
+            }
+            scores.rank(suggestions, start);
+            if (suggestions.size() - start > remaining) {
+                suggestions.subList(start + remaining, suggestions.size()).clear();
+            }
+            if (tiers[t] instanceof CompactPayloadStore store) {
+                for (int i = start; i < suggestions.size(); i++) {
+                    String value = suggestions.get(i);
+                    fromWordlists.putIfAbsent(value, Suggestion.of(value, Suggestion.Source.WORDLIST, store.category(store.lowerBound(value, from, to))));
+                }
+            }
+            remaining -= suggestions.size() - start;
+        }
+        // the fallbacks only fill up to FALLBACK_THRESHOLD, not the whole limit
+        int fallback = Math.min(limit, FALLBACK_THRESHOLD);
+        if (suggestions.size() < fallback) {
+            int start = suggestions.size();
+            typos.collect(candidates.input, suggestions, fallback - start, accept);
+            scores.rank(suggestions, start);
+        }
+        if (suggestions.size() < fallback) {
+            int start = suggestions.size();
+            candidates.fuzzyMatches = fuzzy.collect(candidates.input, candidates.fuzzyMatches, suggestions, fallback, accept);
+            if (suggestions.size() > fallback) {
+                suggestions.subList(fallback, suggestions.size()).clear();
+            }
+            scores.rank(suggestions, start);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Usage scores of the values one query looks at, each looked up once.
+     * Values are scored by the value they resolve to, e.g. a custom keyword
+     * name by its value.
+     */
+    private final class Scores {
+        // used values starting with the input
+        final List<String> used;
+        private final UsageTracker usage;
+        private final Map<String, Double> scores = new HashMap<>();
+
+        Scores(UsageTracker usage, List<String> used) {
+            this.usage = usage;
+            this.used = used;
+        }
+
+        double of(String term) {
+            if (usage == null) {
+                return 0;
+            }
+            return scores.computeIfAbsent(term, key -> {
+                Suggestion suggestion = terms.get(key);
+                return usage.score(suggestion != null ? suggestion.value() : key);
+            });
+        }
+
+        // most used first, the order of unused values is kept
+        void rank(List<String> values, int from) {
+            if (usage != null && values.size() - from > 1) {
+                values.subList(from, values.size()).sort(Comparator.comparingDouble(this::of).reversed());
+            }
+        }
+    }
+
+    /**
+     * Candidates of one input: a [from, to) range per tier, and the ids of the
+     * fuzzy matches once they have been computed (null means every entry).
+     */
+    static final class Candidates {
+        final String input;
+        final int[] ranges;
+        int[] fuzzyMatches;
+
+        Candidates(String input, int[] ranges, int[] fuzzyMatches) {
+            this.input = input;
+            this.ranges = ranges;
+            this.fuzzyMatches = fuzzyMatches;
+        }
+    }
+
+    /**
+     * Every search term of a definition and the suggestion it resolves to,
+     * split by source. A value found in several sources belongs to the first.
+     */
+    private static final class Terms {
+
+        static final Terms EMPTY = new Terms();
+
+        final Map<String, Suggestion> suggestions = new HashMap<>();
+        final Set<String> custom = new HashSet<>();
+        final Set<String> payloads = new HashSet<>();
+        final Set<String> keywords = new HashSet<>();
+        // every keyword value, also the ones first found as payloads
+        final Set<String> allKeywords = new HashSet<>();
+
+        static Terms of(PayloadDefinition definition, Map<String, String> customKeywords) {
+            Terms terms = new Terms();
+            customKeywords.forEach((name, value) -> {
+                if (name == null || value == null) {
+                    return;
+                }
+                Suggestion suggestion = new Suggestion(value, name + " → " + value, Suggestion.Source.CUSTOM, name, 0);
+                terms.suggestions.put(name, suggestion);
+                terms.suggestions.putIfAbsent(value, suggestion);
+                terms.custom.add(name);
+                terms.custom.add(value);
+            });
+            definition.visitPayloads((path, payload) -> {
+                if (terms.suggestions.putIfAbsent(payload.value, Suggestion.of(payload.value, Suggestion.Source.PAYLOAD, path)) == null) {
+                    terms.payloads.add(payload.value);
+                }
+            });
+            if (definition.keywords != null) {
+                for (PayloadDefinition.KeywordCategory category : definition.keywords) {
+                    if (category == null || category.values == null) {
+                        continue;
+                    }
+                    for (String value : category.values) {
+                        if (value != null) {
+                            terms.allKeywords.add(value);
+                        }
+                        if (value != null && terms.suggestions.putIfAbsent(value, Suggestion.of(value, Suggestion.Source.KEYWORD, category.name)) == null) {
+                            terms.keywords.add(value);
+                        }
+                    }
+                }
+            }
+            return terms;
+        }
+    }
+
+    /**
+     * The indexes too costly to build once per section.
+     */
+    private record SharedIndexes(TypoIndex typos, FuzzyIndex fuzzy, InfixIndex infix, PathIndex paths) {
+
+        static final SharedIndexes EMPTY = new SharedIndexes(TypoIndex.EMPTY, FuzzyIndex.EMPTY, InfixIndex.EMPTY, PathIndex.EMPTY);
+
+        static SharedIndexes of(PayloadDefinition definition, Terms terms) {
+            // a keyword may only be a payload in some sections
+            Set<String> typoCorpus = new HashSet<>(terms.allKeywords);
+            typoCorpus.addAll(terms.custom);
+            Set<String> infixCorpus = new HashSet<>(terms.payloads);
+            infixCorpus.addAll(terms.custom);
+            return new SharedIndexes(TypoIndex.of(typoCorpus), FuzzyIndex.of(definition), InfixIndex.of(infixCorpus), PathIndex.of(definition));
+        }
+    }
+}
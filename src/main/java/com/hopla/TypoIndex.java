@@ -0,0 +1,177 @@
+package com.hopla;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * BK-tree over the keywords, answering "which keywords are within 1 or 2
+ * edits of the input" so a mistyped header name such as Contnet-Type still
+ * gets a suggestion. The triangle inequality of the Levenshtein distance lets
+ * a query skip every subtree whose edge distance is out of range.
+ */
+public final class TypoIndex {
+
+    public static final TypoIndex EMPTY = new TypoIndex(new String[0], new String[0]);
+
+    private static final int MIN_INPUT_LENGTH = 3;
+    private static final int LONG_INPUT_LENGTH = 5;
+    private static final int NONE = -1;
+
+    private final String[] words;
+    private final String[] keys;
+    // children of a node form a linked list: firstChild -> nextSibling -> ...
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] edgeDistance;
+    private final int maxKeyLength;
+
+    private TypoIndex(String[] words, String[] keys) {
+        this.words = words;
+        this.keys = keys;
+        this.firstChild = new int[words.length];
+        this.nextSibling = new int[words.length];
+        this.edgeDistance = new int[words.length];
+        Arrays.fill(firstChild, NONE);
+        Arrays.fill(nextSibling, NONE);
+
+        int longest = 0;
+        int[] row = new int[0];
+        int[] previousRow = new int[0];
+        for (int node = 0; node < keys.length; node++) {
+            longest = Math.max(longest, keys[node].length());
+            if (row.length <= longest) {
+                row = new int[longest + 1];
+                previousRow = new int[longest + 1];
+            }
+            if (node > 0) {
+                insert(node, row, previousRow);
+            }
+        }
+        this.maxKeyLength = longest;
+    }
+
+    public static TypoIndex of(Collection<String> values) {
+        Set<String> seen = new LinkedHashSet<>();
+        List<String> words = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (String value : values) {
+            if (value == null || value.length() < MIN_INPUT_LENGTH) {
+                continue;
+            }
+            String key = value.toLowerCase(Locale.ROOT);
+            if (seen.add(key)) {
+                words.add(value);
+                keys.add(key);
+            }
+        }
+        if (words.isEmpty()) {
+            return EMPTY;
+        }
+        return new TypoIndex(words.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    private void insert(int node, int[] row, int[] previousRow) {
+        int current = 0;
+        while (true) {
+            int distance = distance(keys[node], keys[current], row, previousRow);
+            if (distance == 0) {
+                return;
+            }
+            int child = firstChild[current];
+            while (child != NONE && edgeDistance[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child == NONE) {
+                edgeDistance[node] = distance;
+                nextSibling[node] = firstChild[current];
+                firstChild[current] = node;
+                return;
+            }
+            current = child;
+        }
+    }
+
+    public int collect(String input, List<String> out, int limit) {
+        return collect(input, out, limit, word -> true);
+    }
+
+    /**
+     * Appends up to {@code limit} words within edit distance 1 (2 for inputs of 5 characters
+     * or more) of {@code input}, closest first, skipping the ones already present.
+     *
+     * @param accept words suggested at all, e.g. the ones of an HTTP section
+     */
+    public int collect(String input, List<String> out, int limit, Predicate<String> accept) {
+        if (words.length == 0 || limit <= 0 || input.length() < MIN_INPUT_LENGTH) {
+            return 0;
+        }
+        String key = input.toLowerCase(Locale.ROOT);
+        int maxDistance = key.length() >= LONG_INPUT_LENGTH ? 2 : 1;
+        if (key.length() > maxKeyLength + maxDistance) {
+            return 0;
+        }
+
+        int[] row = new int[Math.max(key.length(), maxKeyLength) + 1];
+        int[] previousRow = new int[row.length];
+        // bucket the matches by distance, closest first
+        List<List<String>> buckets = new ArrayList<>();
+        for (int d = 0; d <= maxDistance; d++) {
+            buckets.add(new ArrayList<>());
+        }
+
+        int[] stack = new int[words.length];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int distance = distance(key, keys[node], row, previousRow);
+            if (distance <= maxDistance && accept.test(words[node])) {
+                buckets.get(distance).add(words[node]);
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (Math.abs(edgeDistance[child] - distance) <= maxDistance) {
+                    stack[top++] = child;
+                }
+            }
+        }
+
+        int added = 0;
+        for (List<String> bucket : buckets) {
+            bucket.sort(null);
+            for (String word : bucket) {
+                if (added == limit) {
+                    return added;
+                }
+                if (!out.contains(word)) {
+                    out.add(word);
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    private static int distance(String a, String b, int[] row, int[] previousRow) {
+        for (int j = 0; j <= b.length(); j++) {
+            previousRow[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            row[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                row[j] = Math.min(Math.min(row[j - 1] + 1, previousRow[j] + 1), previousRow[j - 1] + cost);
+            }
+            int[] swap = previousRow;
+            previousRow = row;
+            row = swap;
+        }
+        return previousRow[b.length()];
+    }
+}
@@ -0,0 +1,155 @@
+package com.hopla;
+
+import org.yaml.snakeyaml.Yaml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts how often each payload is inserted, older uses fading out with a
+ * half-life of {@link #HALF_LIFE_MILLIS}.
+ * Uses forward decay: a use at time t adds 2^((t - landmark) / half-life), so
+ * weights never have to be decayed in place and comparing them compares the
+ * decayed scores. Recording is a striped add, readers only see a ranking
+ * rebuilt after the counters changed, along with the same values sorted so the
+ * used values starting with an input are a binary search away.
+ */
+public final class UsageTracker {
+
+    static final long HALF_LIFE_MILLIS = 14L * 24 * 60 * 60 * 1000;
+    private static final int MAX_ENTRIES = 512;
+    private static final double MIN_WEIGHT = 0.01;
+
+    private final Map<String, DoubleAdder> weights = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    private final long landmark;
+    private volatile Ranking ranking = new Ranking(new String[0], new String[0]);
+    private volatile boolean dirty;
+
+    public UsageTracker() {
+        this(System::currentTimeMillis);
+    }
+
+    UsageTracker(LongSupplier clock) {
+        this.clock = clock;
+        this.landmark = clock.getAsLong();
+    }
+
+    public void record(String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        weights.computeIfAbsent(value, k -> new DoubleAdder()).add(decayFactor(clock.getAsLong()));
+        dirty = true;
+    }
+
+    /**
+     * Used values, most used first, at most {@link #MAX_ENTRIES}.
+     */
+    public String[] ranked() {
+        return ranking().byWeight();
+    }
+
+    /**
+     * Used values starting with {@code prefix}, among the ones {@link #ranked()} lists.
+     */
+    public List<String> startingWith(String prefix) {
+        String[] sorted = ranking().sorted();
+        int index = Arrays.binarySearch(sorted, prefix);
+        List<String> used = new ArrayList<>();
+        for (int i = index < 0 ? -index - 1 : index; i < sorted.length && sorted[i].startsWith(prefix); i++) {
+            used.add(sorted[i]);
+        }
+        return used;
+    }
+
+    private Ranking ranking() {
+        if (dirty) {
+            dirty = false;
+            // sums are read once, concurrent adds must not change them while sorting
+            String[] byWeight = weights.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                    .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+                    .limit(MAX_ENTRIES)
+                    .map(Map.Entry::getKey)
+                    .toArray(String[]::new);
+            String[] sorted = byWeight.clone();
+            Arrays.sort(sorted);
+            ranking = new Ranking(byWeight, sorted);
+        }
+        return ranking;
+    }
+
+    /**
+     * Decayed weight of {@code value}, one use right now counting for 1.
+     */
+    public double score(String value) {
+        DoubleAdder weight = weights.get(value);
+        return weight == null ? 0 : weight.sum() / decayFactor(clock.getAsLong());
+    }
+
+    /**
+     * Serializes the decayed weights of the most used values, forgotten ones
+     * are dropped.
+     */
+    public String dump() {
+        double now = decayFactor(clock.getAsLong());
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (String value : ranked()) {
+            DoubleAdder weight = weights.get(value);
+            double score = weight == null ? 0 : weight.sum() / now;
+            if (score >= MIN_WEIGHT) {
+                scores.put(value, Math.round(score * 1000) / 1000.0);
+            }
+        }
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("saved", clock.getAsLong());
+        output.put("scores", scores);
+        return new Yaml().dump(output);
+    }
+
+    /**
+     * Restores weights saved by {@link #dump()}, decayed by the time elapsed since.
+     */
+    @SuppressWarnings("unchecked")
+    public void load(String input) {
+        if (input == null || input.isEmpty()) {
+            return;
+        }
+        Map<String, Object> data = new Yaml().load(input);
+        if (data == null || !(data.get("scores") instanceof Map)) {
+            return;
+        }
+        long saved = data.get("saved") instanceof Number n ? n.longValue() : clock.getAsLong();
+        double factor = decayFactor(saved);
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) data.get("scores")).entrySet()) {
+            if (entry.getValue() instanceof Number score) {
+                weights.computeIfAbsent(entry.getKey(), k -> new DoubleAdder()).add(score.doubleValue() * factor);
+            }
+        }
+        dirty = true;
+    }
+
+    public void clear() {
+        weights.clear();
+        dirty = true;
+    }
+
+    public int size() {
+        return weights.size();
+    }
+
+    private record Ranking(String[] byWeight, String[] sorted) {
+    }
+
+    private double decayFactor(long time) {
+        return Math.pow(2, (double) (time - landmark) / HALF_LIFE_MILLIS);
+    }
+}
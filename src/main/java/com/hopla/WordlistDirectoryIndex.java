@@ -0,0 +1,186 @@
+package com.hopla;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk index of a directory of plain text wordlists. The first load
+ * parses every file into a {@link CompactPayloadStore} and persists it next
+ * to Burp's user data, later sessions memory map that file instead of
+ * parsing the wordlists again, so they cost neither startup time nor heap.
+ * The index is rebuilt when a wordlist is added, removed, resized or touched.
+ * Each fingerprint gets its own index file, so a rebuild never overwrites a
+ * file that may still be mapped by an older snapshot.
+ */
+public final class WordlistDirectoryIndex {
+
+    private static final Path INDEX_DIRECTORY = Paths.get(System.getProperty("user.home"), ".BurpSuite", "hopla", "wordlists");
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final int FINGERPRINT_SIZE = 8;
+
+    private WordlistDirectoryIndex() {
+    }
+
+    public static boolean isWordlistFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return Files.isRegularFile(path) && !name.startsWith(".") && (name.endsWith(".txt") || name.endsWith(".lst"));
+    }
+
+    /**
+     * Opens the index of {@code directory}, building it first when it is missing or stale.
+     *
+     * @param errors receives the wordlists or lines that could not be read,
+     *               they are skipped without failing the whole directory
+     */
+    public static CompactPayloadStore open(Path directory, Consumer<String> errors) throws IOException {
+        return open(directory, INDEX_DIRECTORY, errors);
+    }
+
+    static CompactPayloadStore open(Path directory, Path indexDirectory, Consumer<String> errors) throws IOException {
+        List<Path> files = listWordlists(directory);
+        long fingerprint = fingerprint(directory, files);
+        String name = indexName(directory);
+        Path indexFile = indexDirectory.resolve(name + "-" + Long.toHexString(fingerprint) + INDEX_EXTENSION);
+
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                CompactPayloadStore store = map(indexFile, fingerprint);
+                if (store != null) {
+                    return store;
+                }
+            } catch (RuntimeException e) {
+                // truncated, corrupt or older format
+                errors.accept("Rebuilding wordlist index " + indexFile + ": " + e.getMessage());
+            }
+        }
+
+        CompactPayloadStore.Builder builder = new CompactPayloadStore.Builder();
+        for (Path file : files) {
+            try {
+                int skipped = builder.addLines(file, builder.addCategory(directory.relativize(file).toString()));
+                if (skipped > 0) {
+                    errors.accept("Wordlist " + file + ": skipped " + skipped + " lines that are not valid UTF-8");
+                }
+            } catch (IOException e) {
+                errors.accept("Failed to read wordlist " + file + ": " + e.getMessage());
+            }
+        }
+        Path written = write(indexFile, fingerprint, builder.build());
+        deleteStale(indexDirectory, name, written);
+
+        CompactPayloadStore store = map(written, fingerprint);
+        if (store == null) {
+            throw new IOException("Failed to map wordlist index: " + written);
+        }
+        return store;
+    }
+
+    private static List<Path> listWordlists(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(WordlistDirectoryIndex::isWordlistFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long fingerprint(Path directory, List<Path> files) throws IOException {
+        long hash = 1125899906842597L;
+        for (Path file : files) {
+            hash = 31 * hash + directory.relativize(file).toString().hashCode();
+            hash = 31 * hash + Files.size(file);
+            hash = 31 * hash + Files.getLastModifiedTime(file).toMillis();
+        }
+        return hash;
+    }
+
+    private static String indexName(Path directory) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(directory.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16) + INDEX_EXTENSION;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Maps the index file, or returns null when it was built for other wordlists.
+     */
+    private static CompactPayloadStore map(Path indexFile, long fingerprint) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FINGERPRINT_SIZE) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(FINGERPRINT_SIZE);
+            channel.read(header, 0);
+            if (header.getLong(0) != fingerprint) {
+                return null;
+            }
+            // the mapping stays valid once the channel is closed
+            return CompactPayloadStore.wrap(channel.map(FileChannel.MapMode.READ_ONLY, FINGERPRINT_SIZE, size - FINGERPRINT_SIZE));
+        }
+    }
+
+    /**
+     * Writes the index next to {@code indexFile} and moves it in place.
+     *
+     * @return the file written, the temporary one when it could not be moved
+     */
+    private static Path write(Path indexFile, long fingerprint, CompactPayloadStore store) throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        String name = indexFile.getFileName().toString();
+        Path temporary = Files.createTempFile(indexFile.getParent(), name.substring(0, name.indexOf('-') + 1), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(FINGERPRINT_SIZE).putLong(0, fingerprint);
+            channel.write(header);
+            ByteBuffer content = store.buffer();
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        try {
+            Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return indexFile;
+        } catch (IOException e) {
+            // the corrupt file is still mapped (Windows), use the complete copy for this session
+            return temporary;
+        }
+    }
+
+    /**
+     * Removes the older indexes of the directory, files still mapped are left
+     * for a later session.
+     */
+    private static void deleteStale(Path indexDirectory, String name, Path current) {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(indexDirectory, name + "*")) {
+            for (Path file : stale) {
+                if (!file.equals(current)) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // still mapped
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // nothing to clean up
+        }
+    }
+}
@@ -11,6 +11,9 @@ import burp.api.montoya.ui.settings.SettingsPanelWithData;
 
 public class AIConfiguration {
 
+    public static final int DEFAULT_AUTOCOMPLETION_QUIET_MILLIS = 300;
+    public static final int DEFAULT_AUTOCOMPLETION_MIN_INTERVAL_MILLIS = 1000;
+
     private final MontoyaApi api;
     private final SettingsPanelWithData settingsPanel;
     public boolean isAIConfigured = true;
@@ -43,6 +46,28 @@ public class AIConfiguration {
         return val != null ? val : 3;
     }
 
+    /**
+     * Time without typing before an AI completion is requested.
+     */
+    public int getAutocompletionQuietMillis() {
+        if (!Constants.EXTERNAL_AI) {
+            return DEFAULT_AUTOCOMPLETION_QUIET_MILLIS;
+        }
+        Integer val = settingsPanel.getInteger("AI Autocompletion Quiet Period (ms)");
+        return val != null ? Math.max(0, val) : DEFAULT_AUTOCOMPLETION_QUIET_MILLIS;
+    }
+
+    /**
+     * Minimum time between the start of two AI completion requests.
+     */
+    public int getAutocompletionMinIntervalMillis() {
+        if (!Constants.EXTERNAL_AI) {
+            return DEFAULT_AUTOCOMPLETION_MIN_INTERVAL_MILLIS;
+        }
+        Integer val = settingsPanel.getInteger("AI Autocompletion Min Interval (ms)");
+        return val != null ? Math.max(0, val) : DEFAULT_AUTOCOMPLETION_MIN_INTERVAL_MILLIS;
+    }
+
     public String getChatShortcut() {
         if (!Constants.EXTERNAL_AI) {
             return "Ctrl+J";
@@ -207,6 +232,8 @@ public class AIConfiguration {
         providerConfig.api_key = settingsPanel.getString(prefix + "API Key");
         providerConfig.chat_model = settingsPanel.getString(prefix + "Model");
         providerConfig.chat_endpoint = settingsPanel.getString(prefix + "Endpoint");
+        Integer contextTokens = settingsPanel.getInteger(prefix + "Completion Context Tokens");
+        providerConfig.completion_context_tokens = contextTokens != null ? contextTokens : type.getDefaultContextTokens();
 
         config.providers.put(type, providerConfig);
 
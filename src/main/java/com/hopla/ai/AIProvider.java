@@ -27,7 +27,8 @@ public abstract class AIProvider {
     protected MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     protected Call currentChatcall;
     protected Call currentQuickActionCall;
-    protected Call currentCompletionCall;
+    // cancelled from the EDT while the completion worker executes it
+    protected volatile Call currentCompletionCall;
 
     public AIProvider(AIProviderType type, String name, LLMConfig config, LLMConfig.Provider providerConfig) {
         this.providerName = name;
@@ -66,11 +67,27 @@ public abstract class AIProvider {
         client = builder.build();
     }
 
-    public String promptReplace(Completer.CaretContext caretContext, String prompt) {
-        return prompt.replace("@input", caretContext.lineUpToCaret)
-                .replace("@section", caretContext.section.toString())
-                .replace("@before", caretContext.textBeforeCaret)
-                .replace("@after", caretContext.textAfterCaret);
+    /**
+     * Context of one completion request bounded to the provider's token
+     * budget, computed once and shared by every prompt of the request.
+     */
+    public Completer.CaretContext fitContext(Completer.CaretContext caretContext) {
+        return ContextWindow.fit(caretContext, providerConfig.completion_context_tokens);
+    }
+
+    /**
+     * @param context context already bounded by {@link #fitContext}
+     */
+    public String promptReplace(Completer.CaretContext context, String prompt) {
+        // the context texts are copied from the editor only when the prompt uses them
+        String result = replaceIfPresent(prompt, "@input", context.lineUpToCaret)
+                .replace("@section", context.section.toString());
+        result = replaceIfPresent(result, "@before", context.textBeforeCaret);
+        return replaceIfPresent(result, "@after", context.textAfterCaret);
+    }
+
+    private static String replaceIfPresent(String prompt, String placeholder, CharSequence value) {
+        return prompt.contains(placeholder) ? prompt.replace(placeholder, value) : prompt;
     }
 
     public void testCompletionConfiguration() {
@@ -151,6 +168,16 @@ public abstract class AIProvider {
         }
     }
 
+    public void cancelCurrentCompletionRequest() {
+        Call call = currentCompletionCall;
+        if (call != null && !call.isCanceled()) {
+            if (DEBUG_AI) {
+                HopLa.montoyaApi.logging().logToOutput("Canceling Completion Request");
+            }
+            call.cancel();
+        }
+    }
+
 
     public abstract List<String> autoCompletion(Completer.CaretContext caretContext) throws IOException;
 
@@ -1,14 +1,21 @@
 package com.hopla.ai;
 
 public enum AIProviderType {
-    OLLAMA("Ollama"),
-    GEMINI("Gemini"),
-    OPENAI("OpenAI");
+    OLLAMA("Ollama", 1024),
+    GEMINI("Gemini", 4096),
+    OPENAI("OpenAI", 4096);
 
     private final String displayName;
+    // local models default to a 2048 tokens context, the prompt has to fit in it
+    private final int defaultContextTokens;
 
-    AIProviderType(String displayName) {
+    AIProviderType(String displayName, int defaultContextTokens) {
         this.displayName = displayName;
+        this.defaultContextTokens = defaultContextTokens;
+    }
+
+    public int getDefaultContextTokens() {
+        return defaultContextTokens;
     }
 
     @Override
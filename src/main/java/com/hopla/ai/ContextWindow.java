@@ -0,0 +1,185 @@
+package com.hopla.ai;
+
+import com.hopla.Completer;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Bounds the request text substituted in an AI completion prompt to a token
+ * budget. Keeps the request line and the headers describing the request, as
+ * much text before the caret as fits and a smaller part after it. Only a window
+ * around the caret is read from the editor, so the prompt size does not depend
+ * on the message size.
+ * Tokens are estimated locally: a run of letters or digits, or of whitespace,
+ * costs one token per {@link #CHARS_PER_TOKEN} characters and any other
+ * character one token, close to what BPE tokenizers do on HTTP traffic.
+ */
+public final class ContextWindow {
+
+    static final int CHARS_PER_TOKEN = 4;
+    private static final int HEAD_CHARS = 8192;
+    private static final int MAX_HEADER_CHARS = 256;
+    private static final Set<String> RELEVANT_HEADERS = Set.of(
+            "host", "content-type", "accept", "authorization", "cookie", "origin", "referer", "x-requested-with"
+    );
+
+    private ContextWindow() {
+    }
+
+    public static Completer.CaretContext fit(Completer.CaretContext context, int budget) {
+        CharSequence before = context.textBeforeCaret;
+        CharSequence after = context.textAfterCaret;
+        // a character never costs more than one token
+        if (budget <= 0 || before.length() + after.length() <= budget) {
+            return context;
+        }
+
+        String afterText = after.subSequence(0, Math.min(after.length(), budget / 4 * CHARS_PER_TOKEN)).toString();
+        int afterEnd = fitFromStart(afterText, budget / 4);
+        if (afterEnd < afterText.length()) {
+            int newline = afterText.lastIndexOf('\n', afterEnd - 1);
+            afterEnd = newline > 0 ? newline + 1 : afterEnd;
+        }
+        afterText = afterText.substring(0, afterEnd);
+
+        int beforeBudget = budget - estimate(afterText);
+        int windowStart = Math.max(0, before.length() - beforeBudget * CHARS_PER_TOKEN);
+        String window = before.subSequence(windowStart, before.length()).toString();
+        int cut = fitFromEnd(window, beforeBudget);
+
+        String beforeText = window;
+        if (windowStart > 0 || cut > 0) {
+            // the head ends before the kept text, cutting more of it later keeps the same head
+            String head = head(before, beforeBudget / 4, windowStart + cut);
+            cut = Math.max(cut, fitFromEnd(window, beforeBudget - estimate(head)));
+            int newline = window.indexOf('\n', cut);
+            if (newline != -1) {
+                cut = newline + 1;
+            }
+            beforeText = head + window.substring(cut);
+        }
+
+        CharSequence line = context.lineUpToCaret;
+        if (line.length() > window.length() - cut) {
+            line = window.substring(cut);
+        }
+        return new Completer.CaretContext(context.section, line, beforeText, afterText);
+    }
+
+    /**
+     * Request line and relevant headers starting before {@code end}, within
+     * {@code budget} tokens, followed by the blank line if the body is cut.
+     */
+    static String head(CharSequence text, int budget, int end) {
+        String head = text.subSequence(0, Math.min(text.length(), Math.min(end, HEAD_CHARS))).toString();
+        StringBuilder kept = new StringBuilder();
+        int tokens = 0;
+        int start = 0;
+        while (start < head.length()) {
+            int newline = head.indexOf('\n', start);
+            if (newline == -1) {
+                break;
+            }
+            String line = head.substring(start, newline);
+            if (start > 0 && line.isBlank()) {
+                if (newline + 1 < end) {
+                    kept.append('\n');
+                }
+                break;
+            }
+            if (start == 0 || isRelevantHeader(line)) {
+                line = line.length() > MAX_HEADER_CHARS ? line.substring(0, MAX_HEADER_CHARS) : line;
+                int cost = estimate(line) + 1;
+                if (tokens + cost > budget) {
+                    break;
+                }
+                kept.append(line).append('\n');
+                tokens += cost;
+            }
+            start = newline + 1;
+        }
+        return kept.toString();
+    }
+
+    private static boolean isRelevantHeader(String line) {
+        int colon = line.indexOf(':');
+        return colon > 0 && RELEVANT_HEADERS.contains(line.substring(0, colon).trim().toLowerCase(Locale.ROOT));
+    }
+
+    public static int estimate(CharSequence text) {
+        int tokens = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int end = runEnd(text, i);
+            tokens += cost(text.charAt(i), end - i);
+            i = end;
+        }
+        return tokens;
+    }
+
+    /**
+     * Length of the longest prefix of {@code text} costing at most {@code budget} tokens.
+     */
+    static int fitFromStart(CharSequence text, int budget) {
+        int tokens = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int end = runEnd(text, i);
+            int cost = cost(text.charAt(i), end - i);
+            if (tokens + cost > budget) {
+                return isRun(text.charAt(i)) ? i + (budget - tokens) * CHARS_PER_TOKEN : i;
+            }
+            tokens += cost;
+            i = end;
+        }
+        return text.length();
+    }
+
+    /**
+     * Start of the longest suffix of {@code text} costing at most {@code budget} tokens.
+     */
+    static int fitFromEnd(CharSequence text, int budget) {
+        int tokens = 0;
+        int i = text.length();
+        while (i > 0) {
+            char c = text.charAt(i - 1);
+            int start = i - 1;
+            if (isRun(c)) {
+                while (start > 0 && sameRun(c, text.charAt(start - 1))) {
+                    start--;
+                }
+            }
+            int cost = cost(c, i - start);
+            if (tokens + cost > budget) {
+                return isRun(c) ? i - (budget - tokens) * CHARS_PER_TOKEN : i;
+            }
+            tokens += cost;
+            i = start;
+        }
+        return 0;
+    }
+
+    private static int runEnd(CharSequence text, int start) {
+        char c = text.charAt(start);
+        int end = start + 1;
+        if (isRun(c)) {
+            while (end < text.length() && sameRun(c, text.charAt(end))) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private static int cost(char first, int length) {
+        return isRun(first) ? (length + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN : 1;
+    }
+
+    private static boolean isRun(char c) {
+        return Character.isLetterOrDigit(c) || Character.isWhitespace(c);
+    }
+
+    private static boolean sameRun(char first, char c) {
+        return Character.isWhitespace(first) ? Character.isWhitespace(c) : Character.isLetterOrDigit(c);
+    }
+}
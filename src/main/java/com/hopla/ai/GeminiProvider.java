@@ -127,6 +127,33 @@ public class GeminiProvider extends AIProvider {
 
     }
 
+    /**
+     * Text of the first candidate part in one server-sent event line, null for
+     * other lines and events without text.
+     */
+    static String parseStreamLine(String line) {
+        if (!line.startsWith("data: ")) {
+            return null;
+        }
+
+        String jsonLine = line.substring("data: ".length());
+        if (jsonLine.isBlank()) {
+            return null;
+        }
+
+        JsonObject responseJson = gson.fromJson(jsonLine, JsonObject.class);
+        JsonArray candidates = responseJson.getAsJsonArray("candidates");
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        JsonObject content = candidates.get(0).getAsJsonObject().getAsJsonObject("content");
+        JsonArray parts = content.getAsJsonArray("parts");
+        if (parts == null || parts.isEmpty()) {
+            return null;
+        }
+        return parts.get(0).getAsJsonObject().get("text").getAsString();
+    }
+
     private void sendStreamingRequest(Call call, StreamingCallback callback) {
         new Thread(() -> {
             try (Response response = call.execute()) {
@@ -146,27 +173,12 @@ public class GeminiProvider extends AIProvider {
                         break;
                     }
 
-                    if (!line.startsWith("data: ")) {
-                        continue;
-                    }
-
-                    String jsonLine = line.substring("data: ".length());
-                    if (jsonLine.isBlank()) {
-                        continue;
-                    }
-
-                    JsonObject responseJson = gson.fromJson(jsonLine, JsonObject.class);
-                    JsonArray candidates = responseJson.getAsJsonArray("candidates");
-                    if (candidates != null && !candidates.isEmpty()) {
-                        JsonObject content = candidates.get(0).getAsJsonObject().getAsJsonObject("content");
-                        JsonArray parts = content.getAsJsonArray("parts");
-                        if (parts != null && !parts.isEmpty()) {
-                            String text = parts.get(0).getAsJsonObject().get("text").getAsString();
-                            if (DEBUG_AI) {
-                                HopLa.montoyaApi.logging().logToOutput("AI chat streaming response: " + text);
-                            }
-                            callback.onData(text);
+                    String text = parseStreamLine(line);
+                    if (text != null) {
+                        if (DEBUG_AI) {
+                            HopLa.montoyaApi.logging().logToOutput("AI chat streaming response: " + text);
                         }
+                        callback.onData(text);
                     }
                 }
                 callback.onDone();
@@ -42,6 +42,7 @@ public class LLMConfig {
         public String completion_endpoint;
         public String quick_action_endpoint;
         public String completion_prompt;
+        public int completion_context_tokens = AIProviderType.OLLAMA.getDefaultContextTokens();
         public Map<String, Object> headers = new HashMap<>();
         public Map<String, Object> completion_params = new HashMap<>();
         public Map<String, Object> chat_params = new HashMap<>();
@@ -90,12 +90,14 @@ public class OllamaProvider extends AIProvider {
             throw new IOException("Ollama model undefined");
         }
 
+        Completer.CaretContext context = fitContext(caretContext);
+        String prompt = promptReplace(context, providerConfig.completion_prompt);
         JsonObject jsonPayload = new JsonObject();
         jsonPayload.addProperty("model", providerConfig.completion_model);
-        jsonPayload.addProperty("prompt", promptReplace(caretContext, providerConfig.completion_prompt));
+        jsonPayload.addProperty("prompt", prompt);
 
         if (DEBUG_AI) {
-            HopLa.montoyaApi.logging().logToOutput("Suggestion prompt: " + promptReplace(caretContext, providerConfig.completion_prompt));
+            HopLa.montoyaApi.logging().logToOutput("Suggestion prompt: " + prompt);
         }
 
         jsonPayload.addProperty("stream", false);
@@ -103,7 +105,7 @@ public class OllamaProvider extends AIProvider {
         jsonPayload.addProperty("keep_alive", "60m");
 
         if (!providerConfig.completion_system_prompt.isEmpty()) {
-            jsonPayload.addProperty("system", promptReplace(caretContext, providerConfig.completion_system_prompt));
+            jsonPayload.addProperty("system", promptReplace(context, providerConfig.completion_system_prompt));
         }
         if (!providerConfig.completion_params.isEmpty()) {
             jsonPayload.add("options", mapToJson(providerConfig.completion_params));
@@ -141,9 +143,7 @@ public class OllamaProvider extends AIProvider {
 
         Request request = builder.post(body).build();
 
-        if (currentQuickActionCall != null) {
-            currentCompletionCall.cancel();
-        }
+        cancelCurrentCompletionRequest();
         currentCompletionCall = client.newCall(request);
 
         try (Response response = currentCompletionCall.execute()) {
@@ -248,6 +248,18 @@ public class OllamaProvider extends AIProvider {
 
     }
 
+    /**
+     * Text carried by one line of an Ollama stream, from {@code message.content}
+     * for chats and {@code response} for generations.
+     */
+    static String parseStreamLine(String line, boolean isChat) {
+        JsonObject responseJson = gson.fromJson(line, JsonObject.class);
+        if (isChat) {
+            return responseJson.getAsJsonObject("message").get("content").getAsString();
+        }
+        return responseJson.get("response").getAsString();
+    }
+
     private void sendStreamingRequest(Call call, StreamingCallback callback, Boolean isChat) {
         new Thread(() -> {
             try (Response response = call.execute()) {
@@ -268,20 +280,11 @@ public class OllamaProvider extends AIProvider {
                             return;
                         }
 
-                        JsonObject responseJson = gson.fromJson(line, JsonObject.class);
-
-                        if (isChat) {
-                            JsonObject messageObject = responseJson.getAsJsonObject("message");
-                            if (DEBUG_AI) {
-                                HopLa.montoyaApi.logging().logToOutput("AI streaming response: " + messageObject.get("content").getAsString());
-                            }
-                            callback.onData(messageObject.get("content").getAsString());
-                        } else {
-                            if (DEBUG_AI) {
-                                HopLa.montoyaApi.logging().logToOutput("AI streaming response: " + responseJson.get("response").getAsString());
-                            }
-                            callback.onData(responseJson.get("response").getAsString());
+                        String content = parseStreamLine(line, isChat);
+                        if (DEBUG_AI) {
+                            HopLa.montoyaApi.logging().logToOutput("AI streaming response: " + content);
                         }
+                        callback.onData(content);
                     }
                 }
                 callback.onDone();
@@ -124,6 +124,19 @@ public class OpenAIProvider extends AIProvider {
 
     }
 
+    /**
+     * Delta text of the first choice in one line of a chat completion stream,
+     * null when the line has no choice.
+     */
+    static String parseStreamLine(String line) {
+        JsonObject responseJson = gson.fromJson(line, JsonObject.class);
+        JsonArray choices = responseJson.getAsJsonArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return null;
+        }
+        return choices.get(0).getAsJsonObject().get("delta").getAsJsonObject().get("content").getAsString();
+    }
+
     private void sendStreamingRequest(Call call, StreamingCallback callback) {
         new Thread(() -> {
             try (Response response = call.execute()) {
@@ -142,12 +155,8 @@ public class OpenAIProvider extends AIProvider {
                     if (Thread.currentThread().isInterrupted()) {
                         break;
                     }
-                    JsonObject responseJson = gson.fromJson(line, JsonObject.class);
-
-                    JsonArray choices = responseJson.getAsJsonArray("choices");
-
-                    if (choices != null && !choices.isEmpty()) {
-                        String content = choices.get(0).getAsJsonObject().get("delta").getAsJsonObject().get("content").getAsString();
+                    String content = parseStreamLine(line);
+                    if (content != null) {
                         if (DEBUG_AI) {
                             HopLa.montoyaApi.logging().logToOutput("AI chat streaming response: " + content);
                         }
@@ -0,0 +1,151 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactPayloadStoreTest {
+
+    // entries per front coded block
+    private static final int BLOCK = 16;
+
+    private static List<String> collect(PrefixIndex store, String prefix, int limit) {
+        int from = store.lowerBound(prefix, 0, store.size());
+        int to = store.upperBound(prefix, from, store.size());
+        List<String> out = new ArrayList<>();
+        store.collect(from, to, out, limit);
+        return out;
+    }
+
+    private static CompactPayloadStore store(List<String> values) {
+        CompactPayloadStore.Builder builder = new CompactPayloadStore.Builder();
+        int category = builder.addCategory("list");
+        values.forEach(value -> builder.add(value, category));
+        return builder.build();
+    }
+
+    @Test
+    void testPrefixQueries() {
+        CompactPayloadStore.Builder builder = new CompactPayloadStore.Builder();
+        int fuzzing = builder.addCategory("fuzzing");
+        int paths = builder.addCategory("paths");
+        for (int i = 0; i < 100; i++) {
+            builder.add("/admin/page" + i, paths);
+        }
+        builder.add("/admin/page7", fuzzing);
+        builder.add("%00", fuzzing);
+        builder.add("../../étc", fuzzing);
+        builder.add("", fuzzing);
+        builder.add(null, fuzzing);
+        CompactPayloadStore store = builder.build();
+
+        assertEquals(102, store.size());
+        assertEquals(List.of("/admin/page9", "/admin/page90", "/admin/page91", "/admin/page92", "/admin/page93",
+                "/admin/page94", "/admin/page95", "/admin/page96", "/admin/page97", "/admin/page98", "/admin/page99"), collect(store, "/admin/page9", 25));
+        assertEquals(3, collect(store, "/admin/page1", 3).size());
+        assertEquals(List.of("../../étc"), collect(store, "../../é", 25));
+        assertTrue(collect(store, "/admin/page9x", 25).isEmpty());
+        // the first wordlist a duplicate was added from wins
+        assertEquals("paths", store.category(store.lowerBound("/admin/page7", 0, store.size())));
+        assertArrayEquals(new String[]{"fuzzing", "paths"}, store.categories());
+    }
+
+    @Test
+    void testEveryEntryAroundBlockBoundaries() {
+        // shared prefixes across blocks, the first entry of a block is stored in full
+        TreeSet<String> sorted = new TreeSet<>();
+        for (int i = 0; i < BLOCK * 3 + 1; i++) {
+            sorted.add(String.format("payload-%03d", i));
+        }
+        List<String> values = new ArrayList<>(sorted);
+        CompactPayloadStore store = store(values);
+
+        assertEquals(values.size(), store.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i, store.lowerBound(values.get(i), 0, store.size()), values.get(i));
+            List<String> out = new ArrayList<>();
+            store.collect(i, i + 1, out, 1);
+            assertEquals(values.get(i), out.get(0));
+            assertTrue(store.contains(values.get(i), 0, store.size()));
+        }
+
+        // ranges running over two and three blocks
+        List<String> out = new ArrayList<>();
+        store.collect(BLOCK - 2, BLOCK + 2, out, 25);
+        assertEquals(values.subList(BLOCK - 2, BLOCK + 2), out);
+        out.clear();
+        store.collect(BLOCK - 1, BLOCK * 3 + 1, out, 100);
+        assertEquals(values.subList(BLOCK - 1, BLOCK * 3 + 1), out);
+        assertEquals(values.subList(BLOCK * 3, BLOCK * 3 + 1), collect(store, "payload-048", 25));
+        assertEquals(values.subList(10, 20), collect(store, "payload-01", 25));
+    }
+
+    @Test
+    void testBlockSizes() {
+        for (int size : new int[]{0, 1, BLOCK - 1, BLOCK, BLOCK + 1, BLOCK * 2}) {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                values.add("v" + (char) ('a' + i % 26) + i);
+            }
+            values.sort(null);
+            CompactPayloadStore store = store(values);
+
+            assertEquals(size, store.size());
+            assertEquals(values, collect(store, "v", 100), "size " + size);
+            if (size > 0) {
+                // walking back from the end of one block to the start of another
+                assertEquals("list", store.category(size - 1));
+                assertEquals("list", store.category(0));
+            }
+        }
+    }
+
+    @Test
+    void testValuesSortByUtf8Bytes() {
+        CompactPayloadStore store = store(List.of("é", "z", "Z", "a", "ÿ", "日本"));
+
+        assertEquals(List.of("Z", "a", "z", "é", "ÿ", "日本"), collect(store, "", 25));
+        assertEquals(List.of("日本"), collect(store, "日", 25));
+    }
+
+    @Test
+    void testLinesThatAreNotUtf8AreSkipped(@TempDir Path directory) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write("admin\r\n".getBytes(StandardCharsets.UTF_8));
+        // latin-1 and a truncated sequence, the lines after them are still read
+        content.write(new byte[]{'c', 'a', 'f', (byte) 0xE9, '\n'});
+        content.write("root\n  \n\n".getBytes(StandardCharsets.UTF_8));
+        content.write(new byte[]{'x', (byte) 0xE6, (byte) 0x97, '\n'});
+        content.write("étc\nlast".getBytes(StandardCharsets.UTF_8));
+        Path file = directory.resolve("words.txt");
+        Files.write(file, content.toByteArray());
+
+        CompactPayloadStore.Builder builder = new CompactPayloadStore.Builder();
+        assertEquals(2, builder.addLines(file, builder.addCategory("words")));
+        assertEquals(List.of("admin", "last", "root", "étc"), collect(builder.build(), "", 25));
+    }
+
+    @Test
+    void testWrapReadsTheEncodedBuffer() {
+        CompactPayloadStore store = store(List.of("alpha", "beta", "gamma"));
+        ByteBuffer copy = ByteBuffer.allocateDirect(store.buffer().remaining());
+        copy.put(store.buffer()).flip();
+
+        CompactPayloadStore wrapped = CompactPayloadStore.wrap(copy);
+        assertEquals(List.of("beta"), collect(wrapped, "b", 25));
+        assertThrows(IllegalArgumentException.class, () -> CompactPayloadStore.wrap(ByteBuffer.allocate(64)));
+        // a truncated copy is rejected before any lookup reads past its end
+        copy.limit(copy.limit() - 1);
+        assertThrows(IllegalArgumentException.class, () -> CompactPayloadStore.wrap(copy));
+    }
+}
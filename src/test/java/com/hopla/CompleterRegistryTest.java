@@ -0,0 +1,95 @@
+package com.hopla;
+
+import burp.api.montoya.MontoyaApi;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CompleterRegistryTest {
+
+    private CompleterRegistry completers;
+    private JPanel messageEditor;
+    private JTextArea editor;
+
+    @BeforeEach
+    void setUp() {
+        completers = new CompleterRegistry(mock(MontoyaApi.class));
+        messageEditor = new JPanel();
+        editor = new JTextArea();
+        messageEditor.add(editor);
+        // displayable without a window, as when the tab is shown
+        messageEditor.addNotify();
+    }
+
+    @Test
+    void testEditorNoLongerDisplayableIsDetached() {
+        JTextArea other = new JTextArea();
+        messageEditor.add(other);
+        completers.attach(editor, null);
+        completers.attach(other, null);
+        int keyListeners = editor.getKeyListeners().length;
+        assertEquals(2, completers.size());
+
+        // the Repeater tab is closed
+        messageEditor.remove(other);
+        assertFalse(other.isDisplayable());
+        assertEquals(1, completers.size());
+        assertFalse(completers.isAttached(other));
+
+        messageEditor.removeNotify();
+        assertEquals(0, completers.size());
+        assertFalse(completers.isAttached(editor));
+        // the listeners of the completer and of the registry are removed
+        assertTrue(editor.getKeyListeners().length < keyListeners);
+        assertEquals(0, editor.getHierarchyListeners().length);
+    }
+
+    @Test
+    void testOtherHierarchyChangesKeepTheCompleter() {
+        completers.attach(editor, null);
+
+        JPanel parent = new JPanel();
+        parent.addNotify();
+        parent.add(messageEditor);
+        messageEditor.setVisible(false);
+        messageEditor.setVisible(true);
+
+        assertTrue(editor.isDisplayable());
+        assertTrue(completers.isAttached(editor));
+        assertEquals(1, completers.size());
+    }
+
+    @Test
+    void testEditorShownAgainCanBeAttachedAgain() {
+        completers.attach(editor, null);
+        // attached once
+        completers.attach(editor, null);
+        assertEquals(1, editor.getHierarchyListeners().length);
+
+        messageEditor.removeNotify();
+        assertEquals(0, completers.size());
+
+        messageEditor.addNotify();
+        completers.attach(editor, null);
+        assertTrue(completers.isAttached(editor));
+        assertEquals(1, completers.size());
+    }
+
+    @Test
+    void testDetachAll() {
+        JTextArea other = new JTextArea();
+        messageEditor.add(other);
+        completers.attach(editor, null);
+        completers.attach(other, null);
+
+        completers.detachAll();
+        assertEquals(0, completers.size());
+        assertFalse(completers.isAttached(editor));
+        assertFalse(completers.isAttached(other));
+    }
+}
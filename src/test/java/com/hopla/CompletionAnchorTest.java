@@ -0,0 +1,72 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionAnchorTest {
+
+    private static Document document(String text) throws BadLocationException {
+        Document document = new PlainDocument();
+        document.insertString(0, text, null);
+        return document;
+    }
+
+    @Test
+    void testEachDelimiterEndsTheWord() throws BadLocationException {
+        for (String delimiter : new String[]{"&", "=", ";", "\"", "'", " ", "\t", "\n", "\r"}) {
+            Document document = document("abc" + delimiter + "xyz");
+            assertEquals(4, CompletionAnchor.find(document, 7), "delimiter " + (int) delimiter.charAt(0));
+            assertTrue(CompletionAnchor.isDelimiter(delimiter.charAt(0)));
+        }
+        for (char c : new char[]{'a', '<', '/', '.', '-', ':', '*'}) {
+            assertFalse(CompletionAnchor.isDelimiter(c), "char " + c);
+        }
+    }
+
+    @Test
+    void testCaretAtStartOrAfterDelimiter() throws BadLocationException {
+        Document document = document("a=b&c");
+
+        assertEquals(0, CompletionAnchor.find(document, 0));
+        assertEquals(0, CompletionAnchor.find(document, 1));
+        // right after a delimiter there is no word
+        assertEquals(2, CompletionAnchor.find(document, 2));
+        assertEquals(4, CompletionAnchor.find(document, 4));
+        assertEquals(4, CompletionAnchor.find(document, 5));
+        assertEquals(0, CompletionAnchor.find(document(""), 0));
+    }
+
+    @Test
+    void testWordUpToScanLimit() throws BadLocationException {
+        int max = CompletionAnchor.MAX_WORD_LENGTH;
+
+        // a word running to the start of the document is complete
+        Document atStart = document("x".repeat(max));
+        assertEquals(0, CompletionAnchor.find(atStart, max));
+
+        // exactly the limit after a delimiter
+        Document limit = document("a " + "x".repeat(max));
+        assertEquals(2, CompletionAnchor.find(limit, max + 2));
+
+        // one more character and the delimiter is out of reach
+        Document tooLong = document("a " + "x".repeat(max + 1));
+        assertEquals(max + 3, CompletionAnchor.find(tooLong, max + 3));
+
+        // only the text before the caret is read
+        assertEquals(2, CompletionAnchor.find(tooLong, 12));
+    }
+
+    @Test
+    void testFindInText() {
+        assertEquals(3, CompletionAnchor.find("ab=cd", 3, false));
+        assertEquals(3, CompletionAnchor.find("ab=cd", 5, false));
+        assertEquals(0, CompletionAnchor.find("abcd", 4, true));
+        // without a delimiter in a window not at the document start
+        assertEquals(4, CompletionAnchor.find("abcd", 4, false));
+    }
+}
@@ -0,0 +1,161 @@
+package com.hopla;
+
+import okhttp3.Call;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingWorker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DebouncedSwingWorkerTest {
+
+    // long enough for the real timer never to fire, the tests call fire() instead
+    private static final int QUIET = 60_000;
+    private static final int MIN_INTERVAL = 120_000;
+
+    private final List<String> started = new ArrayList<>();
+    private final List<CallWorker> aborted = new ArrayList<>();
+    private long nanos = 0;
+    // same as AICompletion::abort: the worker, then the HTTP call it waits on
+    private final AutoCompleteMenu.DebouncedSwingWorker<CallWorker> debouncer = new AutoCompleteMenu.DebouncedSwingWorker<>(worker -> {
+        aborted.add(worker);
+        worker.cancel(true);
+        worker.call.cancel();
+    }, () -> nanos);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CallWorker lastWorker;
+
+    @AfterEach
+    void tearDown() {
+        debouncer.cancel();
+        release.countDown();
+    }
+
+    // a completion blocked on its HTTP call until released or cancelled
+    private final class CallWorker extends SwingWorker<Void, Void> {
+        final Call call = mock(Call.class);
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            release.await();
+            return null;
+        }
+    }
+
+    private void schedule(String key) {
+        debouncer.trigger(key, () -> {
+            started.add(key);
+            lastWorker = new CallWorker();
+            return lastWorker;
+        }, QUIET, MIN_INTERVAL);
+    }
+
+    // what the timer runs once it expires, the worker started if any
+    private CallWorker fire() {
+        int before = started.size();
+        debouncer.fire();
+        return started.size() > before ? lastWorker : null;
+    }
+
+    private void advanceMillis(long millis) {
+        nanos += millis * 1_000_000L;
+    }
+
+    @Test
+    void testTriggersWithinTheQuietPeriodAreCoalesced() {
+        schedule("a");
+        schedule("ab");
+        schedule("abc");
+        assertEquals(QUIET, debouncer.scheduledDelay());
+        assertTrue(started.isEmpty());
+
+        assertNotNull(fire());
+        assertEquals(List.of("abc"), started);
+        assertEquals(1, debouncer.fired());
+        assertEquals(2, debouncer.suppressed());
+        // nothing left to start
+        assertNull(fire());
+    }
+
+    @Test
+    void testMinimumIntervalBetweenStarts() {
+        schedule("a");
+        fire();
+        release.countDown();
+
+        advanceMillis(20_000);
+        schedule("b");
+        assertNull(fire());
+        // rescheduled for the rest of the interval
+        assertEquals(MIN_INTERVAL - 20_000, debouncer.scheduledDelay());
+
+        advanceMillis(MIN_INTERVAL - 20_000);
+        assertNotNull(fire());
+        assertEquals(List.of("a", "b"), started);
+    }
+
+    @Test
+    void testSameKeyInFlightIsNotStartedAgain() {
+        schedule("a");
+        CallWorker running = fire();
+
+        advanceMillis(MIN_INTERVAL);
+        schedule("a");
+        assertNull(fire());
+        assertEquals(List.of("a"), started);
+        assertEquals(1, debouncer.suppressed());
+        assertTrue(aborted.isEmpty());
+        assertFalse(running.isCancelled());
+        verify(running.call, never()).cancel();
+    }
+
+    @Test
+    void testOtherKeyAbortsTheWorkerInFlightAndItsCall() {
+        schedule("a");
+        CallWorker running = fire();
+
+        // aborted on the trigger, before the quiet period is over
+        schedule("b");
+        assertEquals(List.of(running), aborted);
+        assertTrue(running.isCancelled());
+        verify(running.call).cancel();
+        assertEquals(1, debouncer.cancelled());
+
+        advanceMillis(MIN_INTERVAL);
+        CallWorker next = fire();
+        assertEquals(List.of("a", "b"), started);
+        assertFalse(next.isCancelled());
+    }
+
+    @Test
+    void testCancelDropsThePendingTriggerAndAbortsTheWorkerInFlight() {
+        schedule("a");
+        CallWorker running = fire();
+        advanceMillis(MIN_INTERVAL);
+        schedule("a");
+
+        debouncer.cancel();
+        assertEquals(-1, debouncer.scheduledDelay());
+        assertEquals(List.of(running), aborted);
+        verify(running.call).cancel();
+        // the pending trigger was dropped
+        assertNull(fire());
+        assertEquals(List.of("a"), started);
+
+        // a finished worker is not aborted
+        schedule("b");
+        CallWorker done = fire();
+        release.countDown();
+        while (!done.isDone()) {
+            Thread.onSpinWait();
+        }
+        debouncer.cancel();
+        assertEquals(List.of(running), aborted);
+        verify(done.call, never()).cancel();
+    }
+}
@@ -0,0 +1,115 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzyIndexTest {
+
+    // one category, unnamed payloads: every haystack is "C <value>"
+    private static FuzzyIndex index(List<String> values) {
+        PayloadDefinition.Category category = new PayloadDefinition.Category();
+        category.name = "C";
+        category.payloads = new ArrayList<>();
+        for (String value : values) {
+            PayloadDefinition.Payload payload = new PayloadDefinition.Payload();
+            payload.value = value;
+            category.payloads.add(payload);
+        }
+        PayloadDefinition definition = new PayloadDefinition();
+        definition.categories = List.of(category);
+        return FuzzyIndex.of(definition);
+    }
+
+    private static List<String> collect(FuzzyIndex index, String input, int limit) {
+        List<String> out = new ArrayList<>();
+        index.collect(input, null, out, limit);
+        return out;
+    }
+
+    @Test
+    void testScorePrefersBoundariesAndRuns() {
+        assertTrue(FuzzyIndex.score("svg", "XSS/SVG <svg>") > FuzzyIndex.score("svg", "xsasvxg"));
+        assertTrue(FuzzyIndex.score("pass", "/etc/passwd") > FuzzyIndex.score("pass", "p-a-s-s"));
+        assertEquals(Integer.MIN_VALUE, FuzzyIndex.score("zz", "/etc/passwd"));
+        assertEquals(Integer.MIN_VALUE, FuzzyIndex.score("", "abc"));
+        assertEquals(Integer.MIN_VALUE, FuzzyIndex.score("abcd", "abc"));
+    }
+
+    @Test
+    void testEqualKeysKeepTheFirstEntries() {
+        FuzzyIndex index = index(List.of("ab-1", "ab-2", "ab-3", "ab-4", "ab-5", "ab-6"));
+
+        // same score and length: a full heap never evicts for an equal key
+        assertEquals(Set.of("ab-1", "ab-2", "ab-3"), Set.copyOf(collect(index, "ab", 3)));
+        assertEquals(List.of("ab-1"), collect(index, "ab", 1));
+    }
+
+    @Test
+    void testShorterHaystackBreaksScoreTies() {
+        FuzzyIndex index = index(List.of("ab-long", "ab-1", "ab-2", "ab"));
+
+        // inserted last, evicts an entry of the full heap and comes first
+        assertEquals(List.of("ab", "ab-1"), collect(index, "ab", 2));
+        List<String> all = collect(index, "ab", 25);
+        assertEquals("ab", all.get(0));
+        assertEquals(Set.of("ab-1", "ab-2"), Set.copyOf(all.subList(1, 3)));
+        assertEquals("ab-long", all.get(3));
+    }
+
+    @Test
+    void testBetterScoreEvictsWorseOnes() {
+        FuzzyIndex index = index(List.of("a-x-b-x", "a--b", "ab", "xab"));
+
+        assertEquals(List.of("ab"), collect(index, "ab", 1));
+        // "ab" evicts the widest gap, "xab" starts inside a word and never enters
+        assertEquals(List.of("ab", "a--b"), collect(index, "ab", 2));
+        assertEquals(List.of("ab", "a--b", "a-x-b-x", "xab"), collect(index, "ab", 4));
+    }
+
+    @Test
+    void testValuesAlreadyListedAreSkipped() {
+        FuzzyIndex index = index(List.of("ab-1", "ab-2", "ab-3"));
+        List<String> out = new ArrayList<>(List.of("ab-1"));
+
+        index.collect("ab", null, out, 3);
+        assertEquals(List.of("ab-1", "ab-2", "ab-3"), out);
+    }
+
+    @Test
+    void testMatchesNarrowTheNextQuery() {
+        FuzzyIndex index = index(List.of("onerror=alert(1)", "onload=alert(1)", "javascript:alert(1)", "/etc/passwd"));
+
+        List<String> out = new ArrayList<>();
+        int[] matches = index.collect("on", null, out, 0);
+        assertTrue(out.isEmpty());
+        assertEquals(2, matches.length);
+
+        List<String> narrowed = new ArrayList<>();
+        index.collect("onerr", matches, narrowed, 25);
+        assertEquals(collect(index, "onerr", 25), narrowed);
+        assertEquals(List.of("onerror=alert(1)"), narrowed);
+    }
+
+    @Test
+    void testTooManyMatchesAreNotNarrowed() {
+        FuzzyIndex index = index(IntStream.range(0, 5000).mapToObj(i -> "value" + i).toList());
+
+        assertNull(index.collect("value", null, new ArrayList<>(), 25));
+        assertNotNull(index.collect("value49", null, new ArrayList<>(), 25));
+    }
+
+    @Test
+    void testRejectedValuesDoNotTakeSlots() {
+        FuzzyIndex index = index(List.of("ab-1", "ab-2", "ab-3"));
+        List<String> out = new ArrayList<>();
+
+        index.collect("ab", null, out, 2, value -> !value.equals("ab-1"));
+        assertEquals(Set.of("ab-2", "ab-3"), Set.copyOf(out));
+    }
+}
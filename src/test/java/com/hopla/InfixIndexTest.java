@@ -0,0 +1,105 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InfixIndexTest {
+
+    private static List<String> collect(InfixIndex index, String fragment, int limit) {
+        List<String> out = new ArrayList<>();
+        index.collect(fragment, out, limit);
+        return out;
+    }
+
+    @Test
+    void testShortestValuesFirst() {
+        InfixIndex index = InfixIndex.of(List.of("<script>alert(1)</script>", "<svg onload=alert(1)>", "alert(1)", "/etc/passwd"));
+
+        assertEquals(List.of("alert(1)", "<svg onload=alert(1)>", "<script>alert(1)</script>"), collect(index, "ert(", 25));
+        assertEquals(List.of("alert(1)", "<svg onload=alert(1)>"), collect(index, "alert", 2));
+        assertEquals(List.of("/etc/passwd"), collect(index, "c/pa", 25));
+        assertTrue(collect(index, "onerror", 25).isEmpty());
+        assertTrue(collect(index, "", 25).isEmpty());
+        assertTrue(collect(index, "alert", 0).isEmpty());
+    }
+
+    @Test
+    void testCaseInsensitive() {
+        InfixIndex index = InfixIndex.of(List.of("<SVG OnLoad=alert(1)>", "onload"));
+
+        assertEquals(List.of("onload", "<SVG OnLoad=alert(1)>"), collect(index, "ONLOAD", 25));
+        assertEquals(List.of("<SVG OnLoad=alert(1)>"), collect(index, "svg o", 25));
+    }
+
+    @Test
+    void testMatchesDoNotSpanValues() {
+        InfixIndex index = InfixIndex.of(List.of("abc", "def"));
+
+        assertTrue(collect(index, "cd", 25).isEmpty());
+        assertEquals(List.of("abc"), collect(index, "c", 25));
+    }
+
+    @Test
+    void testLongFragmentsPastTheSortDepth() {
+        // suffixes are only sorted by their first 64 characters
+        String filler = "A".repeat(100);
+        InfixIndex index = InfixIndex.of(List.of(filler + "x", filler + "y", "B" + filler));
+
+        assertEquals(List.of(filler + "y"), collect(index, filler.substring(1) + "Y", 25));
+        assertEquals(List.of(filler + "x", filler + "y", "B" + filler), collect(index, filler, 25));
+        assertEquals(List.of("B" + filler), collect(index, "b" + filler, 25));
+    }
+
+    @Test
+    void testMatchesAFullScan() {
+        // a small alphabet gives many shared prefixes and repeated runs to sort
+        Random random = new Random(7);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder value = new StringBuilder();
+            int length = 1 + random.nextInt(i % 10 == 0 ? 150 : 12);
+            for (int k = 0; k < length; k++) {
+                value.append("abAB<>".charAt(random.nextInt(random.nextInt(6) + 1)));
+            }
+            values.add(value.toString());
+        }
+        InfixIndex index = InfixIndex.of(values);
+        List<String> sorted = values.stream().distinct()
+                .sorted(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()))
+                .toList();
+
+        for (int i = 0; i < 300; i++) {
+            String fragment = values.get(random.nextInt(values.size()));
+            int from = random.nextInt(fragment.length());
+            fragment = fragment.substring(from, from + 1 + random.nextInt(fragment.length() - from));
+            String key = fragment.toLowerCase(Locale.ROOT);
+            List<String> expected = sorted.stream().filter(value -> value.toLowerCase(Locale.ROOT).contains(key)).limit(50).toList();
+            assertEquals(expected, collect(index, fragment, 50), fragment);
+        }
+    }
+
+    @Test
+    void testRejectedValuesDoNotTakeSlots() {
+        InfixIndex index = InfixIndex.of(List.of("a1", "a22", "a333"));
+        List<String> out = new ArrayList<>();
+
+        assertEquals(2, index.collect("a", out, 2, value -> !value.equals("a1")));
+        assertEquals(List.of("a22", "a333"), out);
+    }
+
+    @Test
+    void testEmptyIndexes() {
+        assertSame(InfixIndex.EMPTY, InfixIndex.of(List.of()));
+        assertSame(InfixIndex.EMPTY, InfixIndex.of(Arrays.asList(null, "")));
+        assertEquals(2, InfixIndex.of(List.of("a", "a", "b")).size());
+        assertTrue(collect(InfixIndex.EMPTY, "a", 25).isEmpty());
+    }
+}
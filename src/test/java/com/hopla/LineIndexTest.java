@@ -0,0 +1,179 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JTextArea;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineIndexTest {
+
+    private static final String[] FRAGMENTS = {"\n", "\n\n", " \n", "\t", " ", "a", "Host: x", "\r\n", "GET / HTTP/1.1\n", "b=1&c=2"};
+
+    private static JTextArea editor(String text) {
+        JTextArea source = new JTextArea(new PlainDocument());
+        source.setText(text);
+        return source;
+    }
+
+    // the index as a full rescan of the text computes it
+    private static void assertMatchesRescan(LineIndex index, Document document, String context) throws BadLocationException {
+        String text = document.getText(0, document.getLength());
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                starts.add(i + 1);
+            }
+        }
+        assertEquals(starts.size(), index.lineCount(), context);
+        for (int line = 0; line < starts.size(); line++) {
+            assertEquals(starts.get(line), index.lineStart(line), context + ", line " + line);
+        }
+
+        String[] lines = text.split("\n", -1);
+        int blank = -1;
+        for (int line = 1; line < lines.length; line++) {
+            if (lines[line].trim().isEmpty()) {
+                blank = line;
+                break;
+            }
+        }
+        assertEquals(blank, index.blankLine(), context + ", blank line");
+
+        for (int offset = 0; offset <= text.length(); offset++) {
+            int line = text.substring(0, offset).split("\n", -1).length - 1;
+            assertEquals(line, index.lineOf(offset), context + ", offset " + offset);
+        }
+    }
+
+    @Test
+    void testSections() {
+        JTextArea source = editor("GET / HTTP/1.1\nHost: x\n\nbody");
+        LineIndex index = LineIndex.of(source);
+
+        assertSame(index, LineIndex.of(source));
+        assertEquals(Completer.HttpSection.REQUEST_LINE, index.sectionOf(0));
+        assertEquals(Completer.HttpSection.REQUEST_LINE, index.sectionOf(14));
+        assertEquals(Completer.HttpSection.HEADERS, index.sectionOf(15));
+        assertEquals(Completer.HttpSection.HEADERS, index.sectionOf(23));
+        assertEquals(Completer.HttpSection.BODY, index.sectionOf(24));
+        assertEquals(Completer.HttpSection.BODY, index.sectionOf(28));
+    }
+
+    @Test
+    void testEditsAcrossNewlines() throws BadLocationException {
+        JTextArea source = editor("GET / HTTP/1.1\nHost: x\n\nbody");
+        Document document = source.getDocument();
+        LineIndex index = LineIndex.of(source);
+
+        // joins the headers and the blank line, the body becomes a header
+        document.remove(22, 2);
+        assertMatchesRescan(index, document, "join");
+        assertEquals(Completer.HttpSection.HEADERS, index.sectionOf(document.getLength()));
+
+        // splitting the request line leaves a blank line, the rest is body
+        document.insertString(3, "\n\n", null);
+        assertMatchesRescan(index, document, "split");
+        assertEquals(Completer.HttpSection.BODY, index.sectionOf(document.getLength()));
+
+        // whitespace only lines are blank too
+        document.remove(0, document.getLength());
+        document.insertString(0, "GET\nA: b\n \t\nbody", null);
+        assertMatchesRescan(index, document, "whitespace");
+        assertEquals(2, index.blankLine());
+    }
+
+    @Test
+    void testBlankLineIsSearchedAgainAfterEdits() throws BadLocationException {
+        JTextArea source = editor("GET\nA: b\n\nbody\n\nmore");
+        Document document = source.getDocument();
+        LineIndex index = LineIndex.of(source);
+        assertEquals(2, index.blankLine());
+
+        // edits after the blank line keep it
+        document.insertString(document.getLength(), "\n\n", null);
+        assertEquals(2, index.blankLine());
+
+        // filling it moves the blank line to the next one
+        document.insertString(9, "C: d", null);
+        assertEquals(4, index.blankLine());
+
+        // a new blank line before it wins
+        document.insertString(4, "\n", null);
+        assertEquals(1, index.blankLine());
+        assertMatchesRescan(index, document, "before");
+    }
+
+    @Test
+    void testRandomEditsMatchFullRescan() throws BadLocationException {
+        Random random = new Random(42);
+        JTextArea source = editor("GET / HTTP/1.1\nHost: x\n\nbody");
+        Document document = source.getDocument();
+        LineIndex index = LineIndex.of(source);
+
+        for (int i = 0; i < 3000; i++) {
+            int length = document.getLength();
+            String context;
+            if (length > 0 && (length > 400 || random.nextInt(3) == 0)) {
+                int offset = random.nextInt(length);
+                int removed = 1 + random.nextInt(Math.min(length - offset, 40));
+                document.remove(offset, removed);
+                context = "edit " + i + ": remove " + removed + " at " + offset;
+            } else {
+                int offset = random.nextInt(length + 1);
+                StringBuilder inserted = new StringBuilder();
+                for (int k = 1 + random.nextInt(4); k > 0; k--) {
+                    inserted.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                }
+                document.insertString(offset, inserted.toString(), null);
+                context = "edit " + i + ": insert " + inserted.toString().replace("\n", "\\n") + " at " + offset;
+            }
+            // the blank line is computed lazily, only read it now and then
+            if (random.nextInt(4) == 0) {
+                assertMatchesRescan(index, document, context);
+            }
+        }
+        assertMatchesRescan(index, document, "end");
+    }
+
+    @Test
+    void testNewDocumentRebuildsIndex() throws BadLocationException {
+        JTextArea source = editor("GET\nA: b");
+        LineIndex index = LineIndex.of(source);
+
+        PlainDocument replaced = new PlainDocument();
+        replaced.insertString(0, "POST\n\nx=1", null);
+        source.setDocument(replaced);
+
+        assertSame(replaced, index.document());
+        assertMatchesRescan(index, replaced, "new document");
+        assertEquals(Completer.HttpSection.BODY, index.sectionOf(replaced.getLength()));
+    }
+
+    @Test
+    void testDetach() throws BadLocationException {
+        JTextArea source = editor("GET\nA: b");
+        Document document = source.getDocument();
+        LineIndex index = LineIndex.of(source);
+
+        LineIndex.detach(source);
+        document.insertString(0, "\n\n", null);
+        source.setDocument(new PlainDocument());
+
+        // no longer listening to the editor or its document
+        assertEquals(2, index.lineCount());
+        assertSame(document, index.document());
+        LineIndex attached = LineIndex.of(source);
+        assertNotSame(index, attached);
+        assertEquals(1, attached.lineCount());
+        LineIndex.detach(source);
+        LineIndex.detach(source);
+    }
+}
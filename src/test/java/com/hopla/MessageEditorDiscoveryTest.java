@@ -0,0 +1,79 @@
+package com.hopla;
+
+import burp.api.montoya.MontoyaApi;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class MessageEditorDiscoveryTest {
+
+    private CompleterRegistry completers;
+    private MessageEditorDiscovery discovery;
+    private JTextArea editor;
+
+    @BeforeEach
+    void setUp() {
+        MontoyaApi api = mock(MontoyaApi.class);
+        completers = new CompleterRegistry(api);
+        discovery = new MessageEditorDiscovery(api, completers, null);
+
+        JPanel messageEditor = new JPanel();
+        messageEditor.setName("messageEditor");
+        editor = new JTextArea();
+        messageEditor.add(editor);
+    }
+
+    @Test
+    void testEditableEditorIsAttached() {
+        discovery.discovered(editor);
+
+        assertTrue(completers.isAttached(editor));
+        assertEquals(1, completers.size());
+    }
+
+    @Test
+    void testEditorOutsideMessageEditorIsIgnored() {
+        JTextArea other = new JTextArea();
+        new JPanel().add(other);
+
+        discovery.discovered(other);
+        other.setEditable(false);
+        other.setEditable(true);
+
+        assertFalse(completers.isAttached(other));
+    }
+
+    @Test
+    void testEditorBecomingEditableAfterShownIsAttached() {
+        editor.setEditable(false);
+        discovery.discovered(editor);
+        // shown again while still read-only, watched once
+        discovery.discovered(editor);
+        assertFalse(completers.isAttached(editor));
+        int listeners = editor.getPropertyChangeListeners("editable").length;
+
+        editor.setEditable(true);
+        assertTrue(completers.isAttached(editor));
+        assertEquals(listeners - 1, editor.getPropertyChangeListeners("editable").length);
+
+        // attached once, toggling again does not add a second completer
+        editor.setEditable(false);
+        editor.setEditable(true);
+        assertEquals(1, completers.size());
+    }
+
+    @Test
+    void testStopUnwatchesReadOnlyEditors() {
+        editor.setEditable(false);
+        discovery.discovered(editor);
+        discovery.stop();
+
+        editor.setEditable(true);
+        assertFalse(completers.isAttached(editor));
+    }
+}
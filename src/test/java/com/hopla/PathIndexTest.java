@@ -0,0 +1,87 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathIndexTest {
+
+    private static PayloadDefinition.Payload payload(String name, String value) {
+        PayloadDefinition.Payload payload = new PayloadDefinition.Payload();
+        payload.name = name;
+        payload.value = value;
+        return payload;
+    }
+
+    private static PayloadDefinition.Category category(String name, List<PayloadDefinition.Payload> payloads, List<PayloadDefinition.Category> categories) {
+        PayloadDefinition.Category category = new PayloadDefinition.Category();
+        category.name = name;
+        category.payloads = payloads;
+        category.categories = categories;
+        return category;
+    }
+
+    // XSS { Polyglot, Svg, <unnamed> }, Path Traversal { Linux { Passwd }, Windows { Win.ini } }
+    private static final PathIndex PATHS;
+
+    static {
+        PayloadDefinition definition = new PayloadDefinition();
+        definition.categories = List.of(
+                category("XSS", List.of(payload("Polyglot", "jaVasCript:/*-/*`/*\\`/*'/*\"/**/"),
+                        payload("Svg", "<svg onload=alert(1)>"), payload(null, "<script>alert(1)</script>")), null),
+                category("Path Traversal", null, List.of(
+                        category("Linux", List.of(payload("Passwd", "../../etc/passwd")), null),
+                        category("Windows", List.of(payload("Win.ini", "..\\..\\windows\\win.ini")), null))));
+        PATHS = PathIndex.of(definition);
+    }
+
+    private static List<String> collect(String input, int limit) {
+        List<String> out = new ArrayList<>();
+        PATHS.collect(input, out, limit);
+        return out;
+    }
+
+    @Test
+    void testLastSegmentIsAPrefix() {
+        assertEquals(List.of("<svg onload=alert(1)>"), collect("xss.sv", 25));
+        assertEquals(List.of("jaVasCript:/*-/*`/*\\`/*'/*\"/**/"), collect("xss.p", 25));
+        assertEquals(List.of("../../etc/passwd"), collect("pathtraversal.linux.pa", 25));
+        assertEquals(List.of("../../etc/passwd", "..\\..\\windows\\win.ini"), collect("pathtraversal.", 25));
+        assertEquals(List.of("../../etc/passwd"), collect("pathtraversal.", 1));
+        assertTrue(collect("pathtraversal.linux.pa", 0).isEmpty());
+    }
+
+    @Test
+    void testOwnPayloadsComeFirst() {
+        assertEquals(List.of("<script>alert(1)</script>", "jaVasCript:/*-/*`/*\\`/*'/*\"/**/", "<svg onload=alert(1)>"), collect("xss.", 25));
+    }
+
+    @Test
+    void testSegmentsAreNormalized() {
+        assertEquals(List.of("../../etc/passwd"), collect("Path-Traversal.LIN", 25));
+        assertEquals(List.of("..\\..\\windows\\win.ini"), collect("path traversal.windows.winini", 25));
+        assertEquals("winini", PathIndex.normalize("Win.ini"));
+        assertEquals("", PathIndex.normalize(null));
+    }
+
+    @Test
+    void testPathsStartAtATopLevelCategory() {
+        assertTrue(collect("linux.pa", 25).isEmpty());
+        assertTrue(collect("xss.nope", 25).isEmpty());
+        assertTrue(collect(".xss", 25).isEmpty());
+        assertTrue(collect("xss", 25).isEmpty());
+        assertTrue(collect("pathtraversal.lin.pa", 25).isEmpty());
+    }
+
+    @Test
+    void testRejectedValuesDoNotTakeSlots() {
+        List<String> out = new ArrayList<>();
+
+        assertEquals(1, PATHS.collect("xss.", out, 1, value -> value.startsWith("<svg")));
+        assertEquals(List.of("<svg onload=alert(1)>"), out);
+        assertEquals(0, PathIndex.EMPTY.collect("xss.", out, 25));
+    }
+}
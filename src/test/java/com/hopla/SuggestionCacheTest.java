@@ -0,0 +1,88 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionCacheTest {
+
+    private final SuggestionCache cache = new SuggestionCache(2);
+    private int queries;
+
+    private List<Suggestion> get(String input) {
+        return cache.get(input, Completer.HttpSection.HEADERS, () -> {
+            queries++;
+            return List.of(Suggestion.of(input + "-" + queries, Suggestion.Source.KEYWORD, "Keywords"));
+        });
+    }
+
+    @Test
+    void testHitsReturnACopy() {
+        List<Suggestion> first = get("Co");
+        get("Co").clear();
+
+        assertEquals(first, get("Co"));
+        assertEquals(1, queries);
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void testSectionsAreCachedApart() {
+        get("Co");
+        cache.get("Co", Completer.HttpSection.BODY, () -> {
+            queries++;
+            return List.of();
+        });
+
+        assertEquals(2, queries);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        get("Co");
+        get("Con");
+        get("Co");
+        get("Coo");
+
+        // "Con" was the eldest entry
+        assertEquals(2, cache.size());
+        get("Co");
+        assertEquals(3, queries);
+        get("Con");
+        assertEquals(4, queries);
+    }
+
+    @Test
+    void testInvalidateDropsEntries() {
+        get("Co");
+        cache.invalidate();
+
+        assertEquals(0, cache.size());
+        get("Co");
+        assertEquals(2, queries);
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void testResultOfAQueryRacingAnInvalidateIsNotCached() {
+        // the snapshot is rebuilt while the query still reads the old one
+        List<Suggestion> stale = cache.get("Co", Completer.HttpSection.HEADERS, () -> {
+            queries++;
+            cache.invalidate();
+            return List.of(Suggestion.of("Cookie", Suggestion.Source.KEYWORD, "Keywords"));
+        });
+
+        assertEquals("Cookie", stale.get(0).value());
+        assertEquals(0, cache.size());
+        assertEquals("Co-2", get("Co").get(0).value());
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.hits());
+        // queries after the rebuild are cached again
+        get("Co");
+        assertEquals(1, cache.hits());
+    }
+}
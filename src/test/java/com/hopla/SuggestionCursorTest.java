@@ -0,0 +1,92 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionCursorTest {
+
+    private static SuggestionSnapshot snapshot(String... keywords) {
+        PayloadDefinition.KeywordCategory category = new PayloadDefinition.KeywordCategory();
+        category.name = "Keywords";
+        category.values = List.of(keywords);
+        PayloadDefinition definition = new PayloadDefinition();
+        definition.keywords = List.of(category);
+        return SuggestionSnapshot.build(definition, Map.of());
+    }
+
+    @Test
+    void testTypingAndBackspaceMatchFullQuery() {
+        SuggestionSnapshot snapshot = snapshot("Content-Type", "Content-Length", "Cookie", "Cache-Control", "<svg>", "<script>");
+        SuggestionCursor cursor = new SuggestionCursor();
+
+        for (String input : List.of("C", "Co", "Con", "Cont", "Con", "Coo", "C", "Ca", "<", "<s", "<sv", "<", "<sc")) {
+            assertEquals(snapshot.query(input, 25), cursor.query(snapshot, input, 25), input);
+        }
+    }
+
+    @Test
+    void testEmptyInputClearsCandidates() {
+        SuggestionSnapshot snapshot = snapshot("Content-Type", "Cookie");
+        SuggestionCursor cursor = new SuggestionCursor();
+
+        cursor.query(snapshot, "Con", 25);
+        assertTrue(cursor.query(snapshot, "", 25).isEmpty());
+        assertEquals(snapshot.query("Co", 25), cursor.query(snapshot, "Co", 25));
+    }
+
+    @Test
+    void testNewSnapshotDropsCandidates() {
+        SuggestionSnapshot before = snapshot("Content-Type");
+        SuggestionSnapshot after = snapshot("Content-Type", "Content-Length");
+        SuggestionCursor cursor = new SuggestionCursor();
+
+        assertEquals(1, cursor.query(before, "Content", 25).size());
+        // same input, but the ranges of the old snapshot must not be reused
+        assertEquals(after.query("Content", 25), cursor.query(after, "Content", 25));
+        assertEquals(after.query("Content-", 25), cursor.query(after, "Content-", 25));
+    }
+
+    @Test
+    void testCacheHitsAdvanceTheCursor() {
+        SuggestionSnapshot snapshot = snapshot("Content-Type", "Content-Length", "Cookie", "Cache-Control");
+        SuggestionCache cache = new SuggestionCache(16);
+        Completer.HttpSection section = Completer.HttpSection.HEADERS;
+        // another editor typed some of these inputs already
+        SuggestionCursor other = new SuggestionCursor();
+        for (String input : List.of("C", "Con", "Conte")) {
+            PayloadManager.getSuggestions(cache, snapshot, section, input, other, null);
+        }
+
+        SuggestionCursor cursor = new SuggestionCursor();
+        List<String> typed = List.of("C", "Co", "Con", "Cont", "Conte", "Content", "Conte", "Co", "Coo");
+        List<Boolean> hit = List.of(true, false, true, false, true, false, true, true, false);
+        for (int i = 0; i < typed.size(); i++) {
+            String input = typed.get(i);
+            long hits = cache.hits();
+            assertEquals(snapshot.query(input, PayloadManager.MAX_SUGGESTIONS), PayloadManager.getSuggestions(cache, snapshot, section, input, cursor, null), input);
+            assertEquals(hit.get(i), cache.hits() > hits, input);
+            // hits and misses alternate, the cursor keeps every prefix either way
+            assertEquals(input, cursor.inputs().get(0));
+        }
+        assertEquals(List.of("Coo", "Co", "C"), cursor.inputs());
+    }
+
+    @Test
+    void testDeepInputs() {
+        String value = "a".repeat(100);
+        SuggestionSnapshot snapshot = snapshot(value, "a".repeat(50) + "b");
+        SuggestionCursor cursor = new SuggestionCursor();
+
+        // deeper than the frames kept, older ones are dropped
+        for (int i = 1; i <= value.length(); i++) {
+            assertEquals(snapshot.query(value.substring(0, i), 25), cursor.query(snapshot, value.substring(0, i), 25));
+        }
+        for (int i = value.length(); i > 0; i -= 7) {
+            assertEquals(snapshot.query(value.substring(0, i), 25), cursor.query(snapshot, value.substring(0, i), 25));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionIndexTest {
+
+    private static List<String> collect(SuggestionIndex index, String prefix, int limit) {
+        List<String> out = new ArrayList<>();
+        index.collect(prefix, out, limit);
+        return out;
+    }
+
+    @Test
+    void testPrefixQueriesAreSorted() {
+        SuggestionIndex index = SuggestionIndex.of(List.of("Cookie", "Content-Type", "Accept", "Content-Length", "Content-Type"));
+
+        assertEquals(4, index.size());
+        assertEquals(List.of("Content-Length", "Content-Type", "Cookie"), collect(index, "Co", 25));
+        assertEquals(List.of("Content-Length"), collect(index, "Co", 1));
+        assertEquals(List.of("Accept"), collect(index, "Accept", 25));
+        assertTrue(collect(index, "Accepts", 25).isEmpty());
+        assertTrue(collect(index, "Z", 25).isEmpty());
+        assertTrue(collect(index, "", 25).isEmpty());
+        assertTrue(collect(index, "Co", 0).isEmpty());
+    }
+
+    @Test
+    void testNullAndEmptyValuesAreSkipped() {
+        assertSame(SuggestionIndex.EMPTY, SuggestionIndex.of(List.of()));
+        assertSame(SuggestionIndex.EMPTY, SuggestionIndex.of(null));
+        SuggestionIndex index = SuggestionIndex.of(Arrays.asList("a", null, "", "b"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testRangesNarrow() {
+        SuggestionIndex index = SuggestionIndex.of(List.of("a", "ab", "abc", "abd", "b"));
+
+        int from = index.lowerBound("ab", 0, index.size());
+        int to = index.upperBound("ab", from, index.size());
+        assertEquals(1, from);
+        assertEquals(4, to);
+
+        // a longer prefix only searches the range of the shorter one
+        int narrowedFrom = index.lowerBound("abd", from, to);
+        assertEquals(3, narrowedFrom);
+        assertEquals(4, index.upperBound("abd", narrowedFrom, to));
+
+        assertTrue(index.contains("abc", from, to));
+        assertFalse(index.contains("a", from, to));
+        assertFalse(index.contains("abe", from, to));
+    }
+}
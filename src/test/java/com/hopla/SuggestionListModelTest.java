@@ -0,0 +1,94 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionListModelTest {
+
+    private static List<Suggestion> suggestions(String... values) {
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (String value : values) {
+            suggestions.add(Suggestion.of(value, Suggestion.Source.KEYWORD, null));
+        }
+        return suggestions;
+    }
+
+    // type, index0 and index1 of every event fired
+    private static List<String> record(SuggestionListModel model) {
+        List<String> events = new ArrayList<>();
+        model.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                events.add("added " + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                events.add("removed " + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                events.add("changed " + e.getIndex0() + "-" + e.getIndex1());
+            }
+        });
+        return events;
+    }
+
+    @Test
+    void testGrowingShrinkingAndEqualLengthUpdates() {
+        SuggestionListModel model = new SuggestionListModel();
+        List<String> events = record(model);
+
+        model.setSuggestions(suggestions("a", "b"));
+        assertEquals(List.of("added 0-1"), events);
+        assertEquals(2, model.getSize());
+
+        events.clear();
+        model.setSuggestions(suggestions("c", "d", "e", "f"));
+        assertEquals(List.of("changed 0-1", "added 2-3"), events);
+        assertEquals("f", model.getElementAt(3).value());
+
+        events.clear();
+        model.setSuggestions(suggestions("g", "h", "i", "j"));
+        assertEquals(List.of("changed 0-3"), events);
+        assertEquals("g", model.getElementAt(0).value());
+
+        events.clear();
+        model.setSuggestions(suggestions("k"));
+        assertEquals(List.of("changed 0-0", "removed 1-3"), events);
+        assertEquals(1, model.getSize());
+
+        events.clear();
+        model.setSuggestions(List.of());
+        assertEquals(List.of("removed 0-0"), events);
+        assertEquals(0, model.getSize());
+
+        // nothing shown before or after
+        events.clear();
+        model.setSuggestions(List.of());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testWidestCountsTheHint() {
+        SuggestionListModel model = new SuggestionListModel();
+        assertNull(model.widest());
+
+        List<Suggestion> suggestions = suggestions("abcdef", "abc");
+        // "abc" and "custom" are longer than "abcdef" and no hint
+        suggestions.add(Suggestion.of("abc", Suggestion.Source.CUSTOM, "x"));
+        model.setSuggestions(suggestions);
+        assertSame(suggestions.get(2), model.widest());
+
+        // on a tie the first one is kept
+        model.setSuggestions(suggestions("abc", "xyz"));
+        assertEquals("abc", model.widest().value());
+    }
+}
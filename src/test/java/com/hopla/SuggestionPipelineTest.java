@@ -0,0 +1,148 @@
+package com.hopla;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionPipelineTest {
+
+    private final SuggestionPipeline pipeline = new SuggestionPipeline();
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+    private final List<String> applied = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        pipeline.shutdown();
+    }
+
+    private void submit(String name) {
+        pipeline.submit(() -> {
+            ran.add(name);
+            return name;
+        }, applied::add);
+    }
+
+    // runs what the pipeline thread handed to the EDT so far
+    private static void flushEdt() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+        });
+    }
+
+    private void awaitApplied(int count) throws Exception {
+        for (int i = 0; i < 200 && applied.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        flushEdt();
+    }
+
+    @Test
+    void testResultsReachTheEdt() throws Exception {
+        boolean[] onEdt = new boolean[2];
+        CountDownLatch done = new CountDownLatch(1);
+        pipeline.submit(() -> {
+            onEdt[0] = SwingUtilities.isEventDispatchThread();
+            return "Co";
+        }, result -> {
+            onEdt[1] = SwingUtilities.isEventDispatchThread();
+            applied.add(result);
+            done.countDown();
+        });
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertFalse(onEdt[0]);
+        assertTrue(onEdt[1]);
+        assertEquals(List.of("Co"), applied);
+    }
+
+    @Test
+    void testOnlyTheLatestWaitingQueryRuns() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.add("A");
+            return "A";
+        }, applied::add);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        // typed while A runs: B is replaced by C before the pipeline gets to it
+        submit("B");
+        submit("C");
+        release.countDown();
+        awaitApplied(1);
+
+        assertEquals(List.of("A", "C"), ran);
+        // A finished after newer queries were submitted, its result is stale
+        assertEquals(List.of("C"), applied);
+    }
+
+    @Test
+    void testCancelDropsTheRunningQueryResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.add("D");
+            return "D";
+        }, applied::add);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        pipeline.cancel();
+        release.countDown();
+        for (int i = 0; i < 200 && ran.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        flushEdt();
+
+        assertEquals(List.of("D"), ran);
+        assertTrue(applied.isEmpty());
+
+        // the pipeline keeps serving queries submitted after the cancel
+        submit("E");
+        awaitApplied(1);
+        assertEquals(List.of("E"), applied);
+    }
+
+    @Test
+    void testCancelDropsTheWaitingQuery() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pipeline.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "A";
+        }, applied::add);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        submit("B");
+        pipeline.cancel();
+        release.countDown();
+        submit("C");
+        awaitApplied(1);
+
+        assertFalse(ran.contains("B"));
+        assertEquals(List.of("C"), applied);
+    }
+}
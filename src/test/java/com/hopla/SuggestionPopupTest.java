@@ -0,0 +1,58 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionPopupTest {
+
+    private static final Rectangle SCREEN = new Rectangle(0, 0, 1000, 800);
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 220;
+    private static final int MARGIN = 20;
+    private static final int ROW = 16;
+
+    private static Rectangle place(int x, int y, Rectangle area) {
+        return SuggestionPopup.place(new Rectangle(x, y, 2, 16), WIDTH, HEIGHT, MARGIN, ROW, area);
+    }
+
+    @Test
+    void testBelowTheCaretWhenItFits() {
+        assertEquals(new Rectangle(100, 120, WIDTH, HEIGHT - MARGIN), place(100, 100, SCREEN));
+        // just enough room
+        assertEquals(new Rectangle(100, 600, WIDTH, HEIGHT - MARGIN), place(100, 580, SCREEN));
+    }
+
+    @Test
+    void testFlipsAboveWhenThereIsMoreRoomThere() {
+        // 50 pixels below, the whole list fits above
+        assertEquals(new Rectangle(100, 530, WIDTH, HEIGHT - MARGIN), place(100, 730, SCREEN));
+        // cut to the room above, still more than below
+        Rectangle small = new Rectangle(0, 0, 1000, 300);
+        assertEquals(new Rectangle(100, 0, WIDTH, 180), place(100, 180, small));
+    }
+
+    @Test
+    void testCutBelowWhenThereIsMoreRoomThere() {
+        Rectangle small = new Rectangle(0, 0, 1000, 300);
+        assertEquals(new Rectangle(100, 140, WIDTH, 160), place(100, 120, small));
+    }
+
+    @Test
+    void testAtLeastOneRowWithinTheArea() {
+        // caret on the last line, below the bottom edge once the margin is added
+        Rectangle bounds = place(100, 795, new Rectangle(0, 780, 1000, 20));
+        assertEquals(new Rectangle(100, 780, WIDTH, ROW), bounds);
+        // caret past the bottom of the area, e.g. a scrolled editor
+        assertEquals(new Rectangle(100, 0, WIDTH, 100), place(100, 900, new Rectangle(0, 0, 1000, 100)));
+    }
+
+    @Test
+    void testKeptWithinTheAreaHorizontally() {
+        assertEquals(1000 - WIDTH, place(900, 100, SCREEN).x);
+        Rectangle second = new Rectangle(1920, 0, 1000, 800);
+        assertEquals(1920, place(1800, 100, second).x);
+    }
+}
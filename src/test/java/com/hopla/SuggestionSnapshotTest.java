@@ -0,0 +1,263 @@
+package com.hopla;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionSnapshotTest {
+
+    private PayloadDefinition definition;
+
+    private static PayloadDefinition.Payload payload(String name, String value) {
+        PayloadDefinition.Payload payload = new PayloadDefinition.Payload();
+        payload.name = name;
+        payload.value = value;
+        return payload;
+    }
+
+    private static List<String> values(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::value).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        PayloadDefinition.Category xss = new PayloadDefinition.Category();
+        xss.name = "XSS";
+        xss.payloads = new ArrayList<>(List.of(
+                payload("SVG", "<svg onload=alert(1)>"),
+                payload("Simple", "<script>alert(1)</script>")
+        ));
+
+        PayloadDefinition.KeywordCategory headers = new PayloadDefinition.KeywordCategory();
+        headers.name = "Headers";
+        headers.values = new ArrayList<>(List.of("Content-Type", "Content-Length", "Cookie"));
+
+        definition = new PayloadDefinition();
+        definition.categories = new ArrayList<>(List.of(xss));
+        definition.keywords = new ArrayList<>(List.of(headers));
+    }
+
+    @Test
+    void testTierOrder() {
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of("cc", "Content-Custom"));
+
+        assertEquals(List.of("Content-Custom", "Content-Length", "Content-Type"), values(snapshot.query("Content", 25)));
+        assertEquals(List.of("<script>alert(1)</script>", "<svg onload=alert(1)>"), values(snapshot.query("<s", 25)));
+    }
+
+    @Test
+    void testLimitAndEmptyInput() {
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of());
+
+        assertEquals(List.of("Content-Length"), values(snapshot.query("Co", 1)));
+        assertTrue(snapshot.query("", 25).isEmpty());
+        assertTrue(snapshot.query("Nope", 25).isEmpty());
+    }
+
+    @Test
+    void testFuzzyMatchesFillRemainingSlots() {
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of());
+
+        assertEquals(List.of("<svg onload=alert(1)>"), values(snapshot.query("xsssvg", 25)));
+        // same score, the shorter haystack wins
+        assertEquals(List.of("<svg onload=alert(1)>", "<script>alert(1)</script>"), values(snapshot.query("alert", 25)));
+        assertEquals(List.of("<svg onload=alert(1)>"), values(snapshot.query("<sv", 25)));
+    }
+
+    @Test
+    void testFallbacksStopAtTheThreshold() {
+        for (int i = 0; i < 30; i++) {
+            definition.categories.get(0).payloads.add(payload("Alert " + i, "alert" + i));
+        }
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of());
+
+        // enough prefix matches, the fuzzy matches of the other payloads are not looked up
+        List<String> prefix = values(snapshot.query("alert", 200));
+        assertEquals(30, prefix.size());
+        assertTrue(prefix.stream().allMatch(value -> value.startsWith("alert")));
+        // fuzzy matches alone stop at the threshold, not at the limit
+        assertEquals(SuggestionSnapshot.FALLBACK_THRESHOLD, snapshot.query("alrt", 200).size());
+        assertEquals(3, snapshot.query("alrt", 3).size());
+    }
+
+    @Test
+    void testTypoTolerantKeywords() {
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of("xff", "X-Forwarded-For"));
+
+        assertEquals(List.of("Content-Type"), values(snapshot.query("Contnet-Type", 25)));
+        assertEquals(List.of("X-Forwarded-For"), values(snapshot.query("X-Forwraded-For", 25)));
+        assertEquals(List.of("Cookie"), values(snapshot.query("Cokie", 25)));
+        assertTrue(snapshot.query("Cxxxxe-Type", 25).isEmpty());
+    }
+
+    @Test
+    void testWordlistsAreATier() {
+        CompactPayloadStore.Builder builder = new CompactPayloadStore.Builder();
+        int fuzzing = builder.addCategory("fuzzing");
+        int traversal = builder.addCategory("traversal.txt");
+        for (int i = 0; i < 100; i++) {
+            builder.add("/admin/page" + i, fuzzing);
+        }
+        builder.add("../../étc", traversal);
+        builder.add("Content-Type", fuzzing);
+        CompactPayloadStore store = builder.build();
+        CompactPayloadStore.Builder other = new CompactPayloadStore.Builder();
+        other.add("/admin/page1", other.addCategory("other"));
+        other.add("/admin/zz", other.addCategory("second"));
+
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of(), List.of(store, other.build()));
+        assertEquals(List.of("../../étc"), values(snapshot.query("../", 25)));
+        assertEquals(3, snapshot.query("/admin/page1", 3).size());
+        // already a keyword, listed once with its keyword source
+        List<Suggestion> contentType = snapshot.query("Content-Type", 25);
+        assertEquals(1, contentType.size());
+        assertEquals(Suggestion.Source.KEYWORD, contentType.get(0).source());
+        assertEquals(Suggestion.Source.WORDLIST, snapshot.query("../", 25).get(0).source());
+
+        // each value names the wordlist it was read from, the first store listing it wins
+        assertEquals("traversal.txt", snapshot.query("../", 25).get(0).category());
+        assertEquals("fuzzing", snapshot.query("/admin/page1", 1).get(0).category());
+        assertEquals("second", snapshot.query("/admin/z", 25).get(0).category());
+    }
+
+    @Test
+    void testSectionPartitions() {
+        definition.keywords.get(0).sections = List.of("HEADERS");
+        PayloadDefinition.Category headers = new PayloadDefinition.Category();
+        headers.name = "Headers";
+        headers.sections = List.of("headers");
+        PayloadDefinition.Category bypass = new PayloadDefinition.Category();
+        bypass.name = "Bypass";
+        bypass.payloads = List.of(payload("", "X-Forwarded-For: 127.0.0.1"));
+        headers.categories = List.of(bypass);
+        definition.categories.add(headers);
+
+        Map<Completer.HttpSection, SuggestionSnapshot> sections = SuggestionSnapshot.buildSections(definition, Map.of("Co-Custom", "Co-Custom"), Map.of());
+
+        assertEquals(List.of("Co-Custom", "Content-Length", "Content-Type", "Cookie"), values(sections.get(Completer.HttpSection.HEADERS).query("Co", 25)));
+        assertEquals(List.of("Co-Custom"), values(sections.get(Completer.HttpSection.BODY).query("Co", 25)));
+        assertEquals(List.of("Co-Custom", "Content-Length", "Content-Type", "Cookie"), values(sections.get(Completer.HttpSection.UNKNOWN).query("Co", 25)));
+        assertEquals(List.of("X-Forwarded-For: 127.0.0.1"), values(sections.get(Completer.HttpSection.HEADERS).query("X-", 25)));
+        assertTrue(sections.get(Completer.HttpSection.REQUEST_LINE).query("X-", 25).isEmpty());
+        assertEquals(List.of("<svg onload=alert(1)>"), values(sections.get(Completer.HttpSection.BODY).query("<sv", 25)));
+    }
+
+    @Test
+    void testSharedIndexesAreFilteredBySection() {
+        definition.keywords.get(0).sections = List.of("HEADERS");
+        PayloadDefinition.Category headers = new PayloadDefinition.Category();
+        headers.name = "Headers";
+        headers.sections = List.of("HEADERS");
+        headers.payloads = List.of(payload("Forwarded", "X-Forwarded-For: 127.0.0.1"));
+        definition.categories.add(headers);
+
+        Map<Completer.HttpSection, SuggestionSnapshot> sections = SuggestionSnapshot.buildSections(definition, Map.of(), Map.of());
+        SuggestionSnapshot body = sections.get(Completer.HttpSection.BODY);
+        SuggestionSnapshot inHeaders = sections.get(Completer.HttpSection.HEADERS);
+
+        assertEquals(List.of("Content-Type"), values(inHeaders.query("Contnet-Type", 25)));
+        assertTrue(body.query("Contnet-Type", 25).isEmpty());
+        assertEquals(List.of("X-Forwarded-For: 127.0.0.1"), values(inHeaders.queryInfix("127.0", 25)));
+        assertTrue(body.queryInfix("127.0", 25).isEmpty());
+        assertEquals(List.of("X-Forwarded-For: 127.0.0.1"), values(inHeaders.query("headers.forw", 25)));
+        assertTrue(body.query("headers.forw", 25).isEmpty());
+        assertEquals(List.of("<svg onload=alert(1)>", "<script>alert(1)</script>"), values(body.query("alert", 25)));
+        assertFalse(values(body.query("xff127", 25)).contains("X-Forwarded-For: 127.0.0.1"));
+        assertEquals("X-Forwarded-For: 127.0.0.1", values(inHeaders.query("xff127", 25)).get(0));
+    }
+
+    @Test
+    void testUsageRanksUsedValuesFirst() {
+        long[] now = {0};
+        UsageTracker usage = new UsageTracker(() -> now[0]);
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of());
+
+        usage.record("Cookie");
+        usage.record("Content-Type");
+        usage.record("Content-Type");
+        usage.record("Not-Indexed");
+
+        assertEquals(List.of("Content-Type", "Cookie", "Content-Length"), values(snapshot.query("Co", 25, usage)));
+        assertEquals(List.of("Content-Type"), values(snapshot.query("Co", 1, usage)));
+        assertEquals(List.of("Content-Length", "Content-Type"), values(snapshot.query("Con", 25, usage)).stream().sorted().toList());
+
+        // four half-lives later, two fresh uses outweigh the old ones
+        now[0] = 4 * UsageTracker.HALF_LIFE_MILLIS;
+        usage.record("Content-Length");
+        usage.record("Content-Length");
+        assertEquals("Content-Length", values(snapshot.query("Co", 25, usage)).get(0));
+    }
+
+    @Test
+    void testUsageRanksWithinEachTier() {
+        UsageTracker usage = new UsageTracker(() -> 0);
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of("xc", "Collab-Header"));
+        usage.record("Cookie");
+        usage.record("Cookie");
+        usage.record("Cookie");
+
+        // custom keywords still come before keywords, however used these are
+        List<Suggestion> suggestions = snapshot.query("Co", 25, usage);
+        assertEquals(List.of("Collab-Header", "Cookie", "Content-Length", "Content-Type"), values(suggestions));
+        assertEquals(3, suggestions.get(1).score(), 1e-9);
+        assertEquals(0, suggestions.get(2).score(), 1e-9);
+        // sorted last among the keywords, it still takes the only free slot
+        assertEquals(List.of("Collab-Header", "Cookie"), values(snapshot.query("Co", 2, usage)));
+
+        // scored by value, also when matched by custom keyword name
+        usage.record("Collab-Header");
+        assertEquals(1, snapshot.query("xc", 25, usage).get(0).score(), 1e-9);
+    }
+
+    @Test
+    void testInfixSearch() {
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of("passwd", "/etc/passwd"));
+
+        assertEquals(List.of("<svg onload=alert(1)>", "<script>alert(1)</script>"), values(snapshot.queryInfix("ALERT(", 25)));
+        assertEquals(List.of("<svg onload=alert(1)>"), values(snapshot.queryInfix("onload", 25)));
+        assertEquals(List.of("/etc/passwd"), values(snapshot.queryInfix("/etc/pass", 25)));
+        assertEquals(1, snapshot.queryInfix("alert", 1).size());
+        assertTrue(snapshot.queryInfix("onerror", 25).isEmpty());
+        // keywords are only completed by prefix
+        assertTrue(snapshot.queryInfix("ookie", 25).isEmpty());
+    }
+
+    @Test
+    void testCategoryPathLookup() {
+        PayloadDefinition.Category lfi = new PayloadDefinition.Category();
+        lfi.name = "Path Traversal";
+        PayloadDefinition.Category linux = new PayloadDefinition.Category();
+        linux.name = "Linux";
+        linux.payloads = List.of(payload("Passwd", "../../etc/passwd"));
+        lfi.categories = List.of(linux);
+        definition.categories.add(lfi);
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of());
+
+        assertEquals(List.of("<svg onload=alert(1)>"), values(snapshot.query("xss.sv", 25)));
+        // fuzzy matches may follow the payloads found by path
+        assertEquals(List.of("<script>alert(1)</script>", "<svg onload=alert(1)>"), values(snapshot.query("XSS.", 25)).subList(0, 2));
+        assertEquals(List.of("../../etc/passwd"), values(snapshot.query("pathtraversal.linux.pa", 25)));
+        assertEquals(List.of("../../etc/passwd"), values(snapshot.query("path-traversal.lin", 25)));
+    }
+
+    @Test
+    void testSourcesAreMergedOnce() {
+        SuggestionSnapshot snapshot = SuggestionSnapshot.build(definition, Map.of("ct", "Content-Type"));
+
+        List<Suggestion> suggestions = snapshot.query("Content-T", 25);
+        assertEquals(1, suggestions.size());
+        assertEquals(Suggestion.Source.CUSTOM, suggestions.get(0).source());
+        assertEquals("ct → Content-Type", suggestions.get(0).label());
+        assertEquals(suggestions.get(0), snapshot.query("ct", 25).get(0));
+
+        Suggestion svg = snapshot.query("<sv", 25).get(0);
+        assertEquals(Suggestion.Source.PAYLOAD, svg.source());
+        assertEquals("XSS", svg.category());
+        assertEquals(Suggestion.Source.KEYWORD, snapshot.query("Cookie", 25).get(0).source());
+    }
+}
@@ -0,0 +1,61 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypoIndexTest {
+
+    private static final TypoIndex HEADERS = TypoIndex.of(List.of(
+            "Content-Type", "Content-Length", "Cookie", "Accept", "Host", "X-Forwarded-For", "Origin"));
+
+    private static List<String> collect(TypoIndex index, String input, int limit) {
+        List<String> out = new ArrayList<>();
+        index.collect(input, out, limit);
+        return out;
+    }
+
+    @Test
+    void testDistanceGrowsWithInputLength() {
+        // one edit under five characters
+        assertEquals(List.of("Host"), collect(HEADERS, "Hosf", 25));
+        assertEquals(List.of("Host"), collect(HEADERS, "Hst", 25));
+        // a swap is two edits
+        assertTrue(collect(HEADERS, "Hots", 25).isEmpty());
+        // two edits from five characters on
+        assertEquals(List.of("Content-Type"), collect(HEADERS, "Contnet-Type", 25));
+        assertEquals(List.of("X-Forwarded-For"), collect(HEADERS, "X-Forwraded-For", 25));
+        assertTrue(collect(HEADERS, "Cxxxxe-Type", 25).isEmpty());
+    }
+
+    @Test
+    void testShortInputsAreIgnored() {
+        TypoIndex index = TypoIndex.of(List.of("ab", "abc", "abd"));
+
+        assertTrue(collect(index, "ab", 25).isEmpty());
+        assertEquals(List.of("abc", "abd"), collect(index, "abx", 25));
+    }
+
+    @Test
+    void testClosestFirstCaseInsensitive() {
+        TypoIndex index = TypoIndex.of(List.of("Origin", "origin", "Orgin1", "Oragin"));
+
+        // the second spelling of a word is dropped, distance 0 comes first
+        assertEquals(List.of("Origin", "Oragin", "Orgin1"), collect(index, "ORIGIN", 25));
+        assertEquals(List.of("Origin"), collect(index, "ORIGIN", 1));
+    }
+
+    @Test
+    void testLimitsAndFilters() {
+        List<String> out = new ArrayList<>(List.of("Cookie"));
+        assertEquals(0, HEADERS.collect("Cokie", out, 25));
+        assertEquals(0, HEADERS.collect("Cokie", new ArrayList<>(), 0));
+        assertEquals(0, HEADERS.collect("Contnet-Type", new ArrayList<>(), 25, word -> !word.startsWith("Content")));
+        assertEquals(0, TypoIndex.EMPTY.collect("Cokie", new ArrayList<>(), 25));
+        // longer than any keyword by more than the distance
+        assertTrue(collect(HEADERS, "X-Forwarded-For-Someone", 25).isEmpty());
+    }
+}
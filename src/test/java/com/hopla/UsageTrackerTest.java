@@ -0,0 +1,95 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsageTrackerTest {
+
+    private final long[] now = {0};
+    private final UsageTracker usage = new UsageTracker(() -> now[0]);
+
+    @Test
+    void testMostUsedFirst() {
+        usage.record("Cookie");
+        usage.record("Content-Type");
+        usage.record("Content-Type");
+        usage.record("");
+        usage.record(null);
+
+        assertArrayEquals(new String[]{"Content-Type", "Cookie"}, usage.ranked());
+        assertEquals(2, usage.size());
+        assertEquals(2, usage.score("Content-Type"), 1e-9);
+        assertEquals(0, usage.score("Accept"), 1e-9);
+    }
+
+    @Test
+    void testScoresHalveEveryHalfLife() {
+        usage.record("Content-Type");
+        now[0] = 4 * UsageTracker.HALF_LIFE_MILLIS;
+
+        assertEquals(0.0625, usage.score("Content-Type"), 1e-9);
+        // one fresh use outweighs older ones
+        usage.record("Cookie");
+        assertArrayEquals(new String[]{"Cookie", "Content-Type"}, usage.ranked());
+        assertEquals(1.0625, usage.score("Cookie") + usage.score("Content-Type"), 1e-9);
+    }
+
+    @Test
+    void testDumpAndLoadKeepScores() {
+        usage.record("Cookie");
+        usage.record("Content-Type");
+        usage.record("Content-Type");
+        String dump = usage.dump();
+
+        // restored later, the saved scores decayed meanwhile
+        now[0] = UsageTracker.HALF_LIFE_MILLIS;
+        UsageTracker restored = new UsageTracker(() -> now[0]);
+        restored.load(dump);
+        assertArrayEquals(usage.ranked(), restored.ranked());
+        assertEquals(1, restored.score("Content-Type"), 1e-9);
+        assertEquals(0.5, restored.score("Cookie"), 1e-9);
+
+        restored.load(null);
+        restored.load("");
+        restored.load("other: 1");
+        assertEquals(2, restored.size());
+    }
+
+    @Test
+    void testForgottenValuesAreNotDumped() {
+        usage.record("Cookie");
+        now[0] = 10 * UsageTracker.HALF_LIFE_MILLIS;
+        usage.record("Accept");
+
+        UsageTracker restored = new UsageTracker(() -> now[0]);
+        restored.load(usage.dump());
+        assertArrayEquals(new String[]{"Accept"}, restored.ranked());
+    }
+
+    @Test
+    void testUsedValuesByPrefix() {
+        usage.record("Content-Type");
+        usage.record("Cookie");
+        usage.record("Accept");
+
+        assertEquals(List.of("Content-Type", "Cookie"), usage.startingWith("Co"));
+        assertEquals(List.of("Accept"), usage.startingWith("Accept"));
+        assertTrue(usage.startingWith("Accepts").isEmpty());
+
+        usage.record("Connection");
+        assertEquals(List.of("Connection", "Content-Type"), usage.startingWith("Con"));
+    }
+
+    @Test
+    void testClear() {
+        usage.record("Cookie");
+        assertEquals(1, usage.ranked().length);
+
+        usage.clear();
+        assertEquals(0, usage.size());
+        assertEquals(0, usage.ranked().length);
+    }
+}
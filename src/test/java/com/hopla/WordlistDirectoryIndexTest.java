@@ -0,0 +1,152 @@
+package com.hopla;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordlistDirectoryIndexTest {
+
+    @TempDir
+    Path temp;
+
+    private final List<String> errors = new ArrayList<>();
+
+    private Path wordlists() throws Exception {
+        Path directory = Files.createDirectories(temp.resolve("wordlists"));
+        Files.writeString(directory.resolve("paths.txt"), "/admin\n/backup\n/config\n");
+        Files.createDirectories(directory.resolve("lfi"));
+        Files.writeString(directory.resolve("lfi/linux.lst"), "../../etc/passwd\n/etc/shadow\n");
+        Files.writeString(directory.resolve("notes.md"), "/not-a-wordlist\n");
+        return directory;
+    }
+
+    private CompactPayloadStore open(Path directory) throws Exception {
+        return WordlistDirectoryIndex.open(directory, temp.resolve("index"), errors::add);
+    }
+
+    private List<Path> indexFiles() throws Exception {
+        try (Stream<Path> files = Files.list(temp.resolve("index"))) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static List<String> collect(CompactPayloadStore store, String prefix) {
+        int from = store.lowerBound(prefix, 0, store.size());
+        List<String> out = new ArrayList<>();
+        store.collect(from, store.upperBound(prefix, from, store.size()), out, 100);
+        return out;
+    }
+
+    @Test
+    void testBuildIndexesEveryWordlist() throws Exception {
+        CompactPayloadStore store = open(wordlists());
+
+        assertEquals(5, store.size());
+        assertEquals(List.of("/admin", "/backup", "/config", "/etc/shadow"), collect(store, "/"));
+        assertEquals("lfi/linux.lst", store.category(store.lowerBound("/etc/shadow", 0, store.size())).replace('\\', '/'));
+        assertTrue(store.buffer().isDirect());
+        assertEquals(1, indexFiles().size());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    void testReopenMapsThePersistedIndex() throws Exception {
+        Path directory = wordlists();
+        open(directory);
+        Path index = indexFiles().get(0);
+        FileTime written = FileTime.fromMillis(1_000_000_000L);
+        Files.setLastModifiedTime(index, written);
+
+        CompactPayloadStore store = open(directory);
+        assertEquals(List.of(index), indexFiles());
+        assertEquals(written, Files.getLastModifiedTime(index));
+        assertEquals(List.of("/admin"), collect(store, "/a"));
+    }
+
+    @Test
+    void testChangedWordlistsRebuildTheIndex() throws Exception {
+        Path directory = wordlists();
+        open(directory);
+        Path first = indexFiles().get(0);
+
+        // resized
+        Files.writeString(directory.resolve("paths.txt"), "/debug\n", StandardOpenOption.APPEND);
+        CompactPayloadStore store = open(directory);
+        Path second = indexFiles().get(0);
+        assertFalse(first.equals(second));
+        assertEquals(1, indexFiles().size());
+        assertEquals(List.of("/debug"), collect(store, "/d"));
+
+        // touched only
+        Files.setLastModifiedTime(directory.resolve("paths.txt"), FileTime.fromMillis(1_000_000_000L));
+        open(directory);
+        assertFalse(second.equals(indexFiles().get(0)));
+
+        // removed
+        Files.delete(directory.resolve("lfi/linux.lst"));
+        store = open(directory);
+        assertEquals(4, store.size());
+        assertTrue(collect(store, "../").isEmpty());
+    }
+
+    @Test
+    void testTruncatedIndexIsRebuilt() throws Exception {
+        Path directory = wordlists();
+        open(directory);
+        Path index = indexFiles().get(0);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        CompactPayloadStore store = open(directory);
+        assertEquals(5, store.size());
+        assertEquals(List.of("/admin", "/backup", "/config", "/etc/shadow"), collect(store, "/"));
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith("Rebuilding wordlist index"));
+    }
+
+    @Test
+    void testCorruptIndexIsRebuilt() throws Exception {
+        Path directory = wordlists();
+        open(directory);
+        Path index = indexFiles().get(0);
+        // same fingerprint and length, but the first block starts past the end
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            channel.read(content, 0);
+            // fingerprint, then the store header, category names and block table
+            int position = 8 + 24;
+            for (int i = 0; i < content.getInt(8 + 20); i++) {
+                position += 4 + content.getInt(position);
+            }
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), position);
+        }
+
+        CompactPayloadStore store = open(directory);
+        assertEquals(List.of("../../etc/passwd"), collect(store, ".."));
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    void testBadLinesDoNotDropTheDirectory() throws Exception {
+        Path directory = wordlists();
+        Files.write(directory.resolve("latin1.txt"), new byte[]{'/', 'c', 'a', 'f', (byte) 0xE9, '\n', '/', 'o', 'k', '\n'});
+
+        CompactPayloadStore store = open(directory);
+        assertEquals(6, store.size());
+        assertEquals(List.of("/ok"), collect(store, "/o"));
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("latin1.txt"));
+    }
+}
@@ -0,0 +1,127 @@
+package com.hopla.ai;
+
+import com.hopla.Completer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextWindowTest {
+
+    private static final String HEAD = "POST /api/items HTTP/1.1\nHost: example.com\nX-Trace: 0123456789\nContent-Type: application/json\n\n";
+
+    private static Completer.CaretContext context(String text, int caret) {
+        int lineStart = text.lastIndexOf('\n', caret - 1) + 1;
+        return new Completer.CaretContext(Completer.HttpSection.BODY, text.substring(lineStart, caret), text.substring(0, caret), text.substring(caret));
+    }
+
+    private static int tokens(Completer.CaretContext context) {
+        return ContextWindow.estimate(context.textBeforeCaret) + ContextWindow.estimate(context.textAfterCaret);
+    }
+
+    private static String body(int lines) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            body.append("{\"id\": ").append(i).append(", \"name\": \"item").append(i).append("\"},\n");
+        }
+        return body.toString();
+    }
+
+    @Test
+    void testEstimate() {
+        assertEquals(0, ContextWindow.estimate(""));
+        assertEquals(1, ContextWindow.estimate("abcd"));
+        assertEquals(2, ContextWindow.estimate("abcde"));
+        assertEquals(3, ContextWindow.estimate("a=b"));
+        assertEquals(1, ContextWindow.estimate("    "));
+    }
+
+    @Test
+    void testContextWithinBudgetIsUnchanged() {
+        Completer.CaretContext context = context(HEAD + "{\"a\": 1}", HEAD.length() + 5);
+        int length = context.textBeforeCaret.length() + context.textAfterCaret.length();
+
+        assertSame(context, ContextWindow.fit(context, length));
+        assertSame(context, ContextWindow.fit(context, 0));
+        assertNotSame(context, ContextWindow.fit(context, length - 1));
+    }
+
+    @Test
+    void testBudgetBoundary() {
+        String text = HEAD + body(2000);
+        int caret = HEAD.length() + body(1000).length() + 7;
+        Completer.CaretContext context = context(text, caret);
+
+        for (int budget : new int[]{64, 100, 256, 1024, 4096}) {
+            Completer.CaretContext fitted = ContextWindow.fit(context, budget);
+            assertTrue(tokens(fitted) <= budget, "budget " + budget + ": " + tokens(fitted));
+            // most of the budget is used
+            assertTrue(tokens(fitted) >= budget / 2, "budget " + budget + ": " + tokens(fitted));
+            assertTrue(ContextWindow.estimate(fitted.textAfterCaret) <= budget / 4, "after " + budget);
+        }
+    }
+
+    @Test
+    void testBudgetBoundaryWhenTheWindowStartsInTheHeaders() {
+        StringBuilder head = new StringBuilder("POST /api/items HTTP/1.1\n");
+        for (String header : new String[]{"Host", "Accept", "Origin", "Referer", "Cookie", "Authorization", "Content-Type"}) {
+            head.append(header).append(": ").append("v=1;".repeat(12)).append('\n');
+        }
+        String text = head + "\n" + body(3);
+
+        for (int caret : new int[]{head.length() / 2, head.length(), text.length() - 5}) {
+            Completer.CaretContext context = context(text, caret);
+            for (int budget = 16; budget < 600; budget++) {
+                Completer.CaretContext fitted = ContextWindow.fit(context, budget);
+                assertTrue(tokens(fitted) <= budget, "caret " + caret + ", budget " + budget + ": " + tokens(fitted));
+            }
+        }
+    }
+
+    @Test
+    void testKeepsRequestLineAndCaretLine() {
+        String text = HEAD + body(2000);
+        int caret = HEAD.length() + body(1000).length() + 7;
+        Completer.CaretContext context = context(text, caret);
+
+        Completer.CaretContext fitted = ContextWindow.fit(context, 512);
+        String before = fitted.textBeforeCaret.toString();
+        String after = fitted.textAfterCaret.toString();
+
+        assertEquals("{\"id\": ", fitted.lineUpToCaret.toString());
+        assertTrue(before.endsWith("\n{\"id\": "), before);
+        assertTrue(before.startsWith("POST /api/items HTTP/1.1\nHost: example.com\nContent-Type: application/json\n\n"), before);
+        // headers that do not describe the request are dropped
+        assertFalse(before.contains("X-Trace"));
+        // the text after the caret is cut on a line boundary
+        assertTrue(after.startsWith("1000, \"name\""), after);
+        assertTrue(after.endsWith("\n"), after);
+        assertTrue(text.substring(caret).startsWith(after));
+    }
+
+    @Test
+    void testSingleLineLargerThanBudget() {
+        String line = "q=" + "x1-".repeat(20000);
+        String text = "GET /?" + line;
+        Completer.CaretContext context = new Completer.CaretContext(Completer.HttpSection.REQUEST_LINE, text, text, "\n");
+
+        Completer.CaretContext fitted = ContextWindow.fit(context, 256);
+        String before = fitted.textBeforeCaret.toString();
+
+        assertTrue(tokens(fitted) <= 256, "tokens: " + tokens(fitted));
+        // the caret line is cut from its start, the text up to the caret is kept
+        assertTrue(text.endsWith(before), before);
+        assertEquals(before, fitted.lineUpToCaret.toString());
+        assertEquals("\n", fitted.textAfterCaret.toString());
+    }
+
+    @Test
+    void testFitFromStartAndEnd() {
+        assertEquals(8, ContextWindow.fitFromStart("abcdefghijkl", 2));
+        assertEquals(4, ContextWindow.fitFromEnd("abcdefghijkl", 2));
+        assertEquals(2, ContextWindow.fitFromStart("a=b=c", 2));
+        assertEquals(3, ContextWindow.fitFromEnd("a=b=c", 2));
+        assertEquals(0, ContextWindow.fitFromStart("==", 0));
+        assertEquals(5, ContextWindow.fitFromStart("a=b=c", 10));
+        assertEquals(0, ContextWindow.fitFromEnd("a=b=c", 10));
+    }
+}
@@ -106,4 +106,18 @@ class OpenAIProviderTest {
         assertEquals("user", messages.get(0).getAsJsonObject().get("role").getAsString());
         assertEquals("Hello", messages.get(0).getAsJsonObject().get("content").getAsString());
     }
+
+    @Test
+    void testCancelCompletionCancelsTheCallInFlight() {
+        // what AICompletion.abort calls once the debouncer aborts it
+        provider.currentCompletionCall = call;
+        provider.cancelCurrentCompletionRequest();
+        verify(call).cancel();
+
+        Call done = mock(Call.class);
+        when(done.isCanceled()).thenReturn(true);
+        provider.currentCompletionCall = done;
+        provider.cancelCurrentCompletionRequest();
+        verify(done, never()).cancel();
+    }
 }